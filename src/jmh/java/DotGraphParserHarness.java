@@ -0,0 +1,76 @@
+import benchmarks.GraphHarness;
+
+// Default-package adapter that lets the benchmarks package drive a DotGraphParser
+public class DotGraphParserHarness implements GraphHarness {
+    private final DotGraphParser parser;
+
+    public DotGraphParserHarness(boolean concurrent) {
+        this.parser = new DotGraphParser(concurrent);
+    }
+
+    @Override
+    public void parse(java.nio.file.Path file) {
+        parser.parseGraph(file);
+    }
+
+    @Override
+    public void addNode(String name) {
+        parser.addNode(name);
+    }
+
+    @Override
+    public void addEdge(String source, String target) {
+        parser.addEdge(source, target);
+    }
+
+    @Override
+    public void removeNode(String name) {
+        parser.removeNode(name);
+    }
+
+    @Override
+    public void removeNodes(String[] names) {
+        parser.removeNodes(names);
+    }
+
+    @Override
+    public int search(String source, String target, String algorithm) {
+        Path path = parser.GraphSearch(source, target, Algorithm.valueOf(algorithm));
+        return path == null ? -1 : path.getNodes().size();
+    }
+
+    @Override
+    public int edgeCount() {
+        return parser.getEdges().size();
+    }
+
+    @Override
+    public void setSearchCacheSize(int size) {
+        parser.setSearchCacheSize(size);
+    }
+
+    @Override
+    public void outputGraph(java.nio.file.Path file) {
+        parser.outputGraph(file, false);
+    }
+
+    @Override
+    public void saveSnapshot(java.nio.file.Path file) {
+        parser.saveSnapshot(file);
+    }
+
+    @Override
+    public void loadSnapshot(java.nio.file.Path file) {
+        parser.loadSnapshot(file);
+    }
+
+    @Override
+    public void setOffHeapNames(boolean offHeapNames) {
+        parser.setOffHeapNames(offHeapNames);
+    }
+
+    @Override
+    public long nameDictionaryBytes() {
+        return parser.getNameDictionaryBytes();
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of a concurrent parser under a mixed workload: reader threads search the published snapshot while
+// a writer keeps adding edges
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Group)
+public class ConcurrentBenchmark {
+    private GraphHarness harness;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void load(GraphShape shape) {
+        harness = shape.load(true);
+        names = shape.graph.names;
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom rng = new SplittableRandom(Thread.currentThread().getId());
+
+        String pick(String[] names) {
+            return names[rng.nextInt(names.length)];
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public int read(Picker picker) {
+        return harness.search(picker.pick(names), picker.pick(names), "BIDIRECTIONAL_BFS");
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void write(Picker picker) {
+        harness.addEdge(picker.pick(names), picker.pick(names));
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// getEdges().size() right after a mutation; the count is kept up to date by the mutation itself, so this no
+// longer rebuilds or copies anything
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EdgeViewBenchmark {
+    private GraphHarness harness;
+    private boolean toggle;
+
+    @Setup(Level.Trial)
+    public void load(GraphShape shape) {
+        harness = shape.load(false);
+    }
+
+    @Setup(Level.Invocation)
+    public void mutate() {
+        if (toggle) {
+            harness.removeNode("scratch");
+        } else {
+            harness.addEdge("n0", "scratch");
+        }
+        toggle = !toggle;
+    }
+
+    @Benchmark
+    public int getEdges() {
+        return harness.edgeCount();
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.nio.file.Path;
+
+// The parser lives in the default package, which JMH benchmark classes cannot import, so benchmarks reach it
+// through this interface. The implementation is DotGraphParserHarness in the default package.
+public interface GraphHarness {
+    void parse(Path file);
+
+    void addNode(String name);
+
+    void addEdge(String source, String target);
+
+    void removeNode(String name);
+
+    void removeNodes(String[] names);
+
+    // Number of nodes on the path found by algorithm (a DotGraphParser Algorithm name), or -1 if there is none
+    int search(String source, String target, String algorithm);
+
+    int edgeCount();
+
+    void setSearchCacheSize(int size);
+
+    void outputGraph(Path file);
+
+    void saveSnapshot(Path file);
+
+    void loadSnapshot(Path file);
+
+    void setOffHeapNames(boolean offHeapNames);
+
+    // Approximate bytes held by the node-name dictionary of the current snapshot
+    long nameDictionaryBytes();
+
+    static GraphHarness create(boolean concurrent) {
+        try {
+            return (GraphHarness) Class.forName("DotGraphParserHarness")
+                    .getConstructor(boolean.class)
+                    .newInstance(concurrent);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("DotGraphParserHarness is not on the classpath", e);
+        }
+    }
+}
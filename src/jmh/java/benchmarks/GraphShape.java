@@ -0,0 +1,31 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Benchmark parameters shared by every benchmark: which synthetic graph to run against
+@State(Scope.Benchmark)
+public class GraphShape {
+    @Param({SyntheticGraphs.CHAIN, SyntheticGraphs.TREE, SyntheticGraphs.RANDOM, SyntheticGraphs.POWER_LAW})
+    public String shape;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int edges;
+
+    public SyntheticGraphs graph;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        graph = SyntheticGraphs.generate(shape, edges, 42);
+    }
+
+    // A parser holding the whole graph
+    public GraphHarness load(boolean concurrent) {
+        GraphHarness harness = GraphHarness.create(concurrent);
+        graph.addTo(harness);
+        return harness;
+    }
+}
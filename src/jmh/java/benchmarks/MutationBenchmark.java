@@ -0,0 +1,77 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Bulk inserts into an empty parser, and removals from a full one. Removals change the graph, so each
+// measurement is a single shot against a graph rebuilt before the iteration.
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MutationBenchmark {
+    // Share of the nodes removed by the removal benchmarks
+    private static final double REMOVED_FRACTION = 0.01;
+
+    private GraphHarness full;
+    private String[] victims;
+
+    @Setup(Level.Iteration)
+    public void fill(GraphShape shape) {
+        full = shape.load(false);
+        SplittableRandom rng = new SplittableRandom(7);
+        victims = new String[Math.max(1, (int) (shape.graph.nodeCount * REMOVED_FRACTION))];
+        for (int i = 0; i < victims.length; i++) {
+            victims[i] = shape.graph.names[rng.nextInt(shape.graph.nodeCount)];
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public GraphHarness addEdges(GraphShape shape) {
+        GraphHarness harness = GraphHarness.create(false);
+        shape.graph.addTo(harness);
+        return harness;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public GraphHarness addNodes(GraphShape shape) {
+        GraphHarness harness = GraphHarness.create(false);
+        for (String name : shape.graph.names) {
+            harness.addNode(name);
+        }
+        return harness;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void removeNodesBatch() {
+        full.removeNodes(victims);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void removeNodeEach() {
+        for (String victim : victims) {
+            try {
+                full.removeNode(victim);
+            } catch (IllegalArgumentException alreadyRemoved) {
+                // The sample may pick a node twice
+            }
+        }
+    }
+}
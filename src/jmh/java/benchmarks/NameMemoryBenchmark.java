@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Memory cost of node labels: loads a saved snapshot with labels kept as Strings or off-heap as UTF-8. The
+// dictionary's footprint is reported as the secondary "dictionaryBytes" result; run with "-prof gc" to also see
+// the heap allocated per load (gc.alloc.rate.norm).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NameMemoryBenchmark {
+    @Param({"false", "true"})
+    public boolean offHeapNames;
+
+    private Path file;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long dictionaryBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void save(GraphShape shape) throws IOException {
+        file = Files.createTempFile("names", ".graph");
+        shape.load(false).saveSnapshot(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public GraphHarness loadSnapshot(Footprint footprint) {
+        GraphHarness harness = GraphHarness.create(false);
+        harness.setOffHeapNames(offHeapNames);
+        harness.loadSnapshot(file);
+        footprint.dictionaryBytes = harness.nameDictionaryBytes();
+        return harness;
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Streaming parseGraph of a DOT file, and outputGraph of the same graph back to disk
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+    private Path input;
+    private Path output;
+    private GraphHarness loaded;
+
+    @Setup(Level.Trial)
+    public void writeInput(GraphShape shape) throws IOException {
+        input = Files.createTempFile("benchmark", ".dot");
+        output = Files.createTempFile("benchmark-out", ".dot");
+        shape.graph.writeDot(input);
+        loaded = shape.load(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public GraphHarness parseGraph() {
+        GraphHarness harness = GraphHarness.create(false);
+        harness.parse(input);
+        return harness;
+    }
+
+    @Benchmark
+    public void outputGraph() {
+        loaded.outputGraph(output);
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// GraphSearch between random node pairs and to an unreachable node (a full traversal of the source's
+// component). The search cache is disabled so every call searches.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    private static final String UNREACHABLE = "unreachable";
+
+    @Param({"BFS", "DFS", "PARALLEL_BFS"})
+    public String algorithm;
+
+    private GraphHarness harness;
+    private String[] sources;
+    private String[] targets;
+    private String root;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void load(GraphShape shape) {
+        harness = shape.load(false);
+        harness.addNode(UNREACHABLE);
+        harness.setSearchCacheSize(0);
+        root = shape.graph.root();
+        SplittableRandom rng = new SplittableRandom(11);
+        sources = new String[QUERY_COUNT];
+        targets = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            sources[i] = shape.graph.names[rng.nextInt(shape.graph.nodeCount)];
+            targets[i] = shape.graph.names[rng.nextInt(shape.graph.nodeCount)];
+        }
+    }
+
+    @Benchmark
+    public int searchRandomPair() {
+        int i = next++ & (QUERY_COUNT - 1);
+        return harness.search(sources[i], targets[i], algorithm);
+    }
+
+    @Benchmark
+    public int searchUnreachable() {
+        return harness.search(root, UNREACHABLE, algorithm);
+    }
+}
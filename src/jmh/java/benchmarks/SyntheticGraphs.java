@@ -0,0 +1,114 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+// Seeded edge lists in a few shapes, sized by edge count. Node i is named "n" + i.
+public final class SyntheticGraphs {
+    public static final String CHAIN = "chain";
+    public static final String TREE = "tree";
+    public static final String RANDOM = "random";
+    public static final String POWER_LAW = "powerlaw";
+
+    // Children per node in TREE, average out-degree in RANDOM and edges added per node in POWER_LAW
+    private static final int FAN_OUT = 4;
+
+    public final int nodeCount;
+    public final int[] sources;
+    public final int[] targets;
+    public final String[] names;
+
+    private SyntheticGraphs(int nodeCount, int[] sources, int[] targets) {
+        this.nodeCount = nodeCount;
+        this.sources = sources;
+        this.targets = targets;
+        this.names = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            names[i] = "n" + i;
+        }
+    }
+
+    public static SyntheticGraphs generate(String shape, int edgeCount, long seed) {
+        SplittableRandom rng = new SplittableRandom(seed);
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        int nodeCount;
+        switch (shape) {
+            case CHAIN:
+                nodeCount = edgeCount + 1;
+                for (int e = 0; e < edgeCount; e++) {
+                    sources[e] = e;
+                    targets[e] = e + 1;
+                }
+                break;
+            case TREE:
+                nodeCount = edgeCount + 1;
+                for (int e = 0; e < edgeCount; e++) {
+                    sources[e] = e / FAN_OUT;
+                    targets[e] = e + 1;
+                }
+                break;
+            case RANDOM:
+                nodeCount = Math.max(2, edgeCount / FAN_OUT);
+                for (int e = 0; e < edgeCount; e++) {
+                    sources[e] = rng.nextInt(nodeCount);
+                    targets[e] = rng.nextInt(nodeCount);
+                }
+                break;
+            case POWER_LAW:
+                // Preferential attachment, edges from older to newer nodes as in the test sources' SyntheticGraph
+                nodeCount = Math.max(2, edgeCount / FAN_OUT + 1);
+                int[] endpoints = new int[2 * edgeCount];
+                int endpointCount = 0;
+                int older = 0;
+                int node = 1;
+                for (int e = 0; e < edgeCount; e++) {
+                    if (e > 0 && e % FAN_OUT == 0 && node < nodeCount - 1) {
+                        node++;
+                        older = endpointCount;
+                    }
+                    int source = older == 0 ? 0 : endpoints[rng.nextInt(older)];
+                    sources[e] = source;
+                    targets[e] = node;
+                    endpoints[endpointCount++] = source;
+                    endpoints[endpointCount++] = node;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown graph shape: " + shape);
+        }
+        return new SyntheticGraphs(nodeCount, sources, targets);
+    }
+
+    // A node that reaches the whole graph in every shape but RANDOM
+    public String root() {
+        return names[0];
+    }
+
+    public int edgeCount() {
+        return sources.length;
+    }
+
+    public void writeDot(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("digraph G {\n");
+            for (int e = 0; e < sources.length; e++) {
+                out.write(names[sources[e]]);
+                out.write(" -> ");
+                out.write(names[targets[e]]);
+                out.write(";\n");
+            }
+            out.write("}\n");
+        }
+    }
+
+    public void addTo(GraphHarness graph) {
+        for (int e = 0; e < sources.length; e++) {
+            graph.addEdge(names[sources[e]], names[targets[e]]);
+        }
+    }
+}
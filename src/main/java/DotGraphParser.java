@@ -3,54 +3,640 @@ import guru.nidi.graphviz.model.MutableGraph;
 import guru.nidi.graphviz.model.MutableNode;
 import guru.nidi.graphviz.model.Factory;
 import guru.nidi.graphviz.model.Link;
-import guru.nidi.graphviz.model.LinkTarget;
-import guru.nidi.graphviz.engine.Graphviz;
-import guru.nidi.graphviz.engine.Format;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.util.List;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
+import java.util.AbstractSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.Set;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Stack;
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleBiFunction;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
-// Enum to select search algorithm
+// Enum to select search algorithm; DIJKSTRA and A_STAR read edge weights from the "weight" or "len" attribute,
+// PARALLEL_BFS spreads each BFS level across the search pool
 enum Algorithm {
-    BFS, DFS
+    BFS, DFS, BIDIRECTIONAL_BFS, DIJKSTRA, A_STAR, PARALLEL_BFS
 }
 
 public class DotGraphParser {
-    private MutableGraph graph;
+    private static final int DEFAULT_SEARCH_CACHE_SIZE = 1024;
+    private static final Logger LOG = LoggerFactory.getLogger(DotGraphParser.class);
+    private static final long DEFAULT_JOURNAL_COMMIT_MILLIS = 10;
+    private static final long DEFAULT_JOURNAL_COMPACTION_BYTES = 64L << 20;
+
+    private volatile MutableGraph graph;
+    // Index from node name to node, kept in sync with every mutation so lookups are O(1)
+    private Map<String, MutableNode> nodeIndex = new HashMap<>();
+    // Bumped on every structural change; snapshots record the value they were built from to know when they are stale
+    private volatile long modCount;
+    // Latest immutable view of the graph; searches and node/edge views read it without locking
+    private volatile GraphSnapshot snapshot;
+    // Held by every mutation (and snapshot rebuild) in concurrent mode; null otherwise
+    private final ReentrantLock writeLock;
+    // Node and (distinct) edge counts, kept up to date by every mutation so nodeCount and edgeCount are O(1)
+    private volatile int nodeTotal;
+    private volatile long edgeTotal;
+    // Live read-only views handed out by getNodes and getEdges
+    private final Set<String> nodeView = new NodeView();
+    private final Set<String> edgeView = new EdgeView();
+    // Reverse adjacency: target name to the names of nodes with an edge into it
+    private Map<String, Set<String>> incomingIndex = new HashMap<>();
+    // MutableNode hashes cover their links, so removed nodes cannot be taken out of graph's node set in place;
+    // the set is resynchronised from the index before the graph is handed to Graphviz instead
+    private boolean rootsStale;
+    // Set by loadSnapshot: the graph lives only in the snapshot's arrays until something needs the Graphviz model
+    private volatile GraphSnapshotFile.Header pendingLoad;
+    // Estimate of the remaining cost between two nodes for A_STAR; must never overestimate (admissible), but need
+    // not be consistent
+    private volatile ToDoubleBiFunction<String, String> heuristic;
+    // Search results, valid only while their recorded version matches the snapshot they came from
+    private final SearchCache searchCache = new SearchCache(DEFAULT_SEARCH_CACHE_SIZE);
+    // Pool used by PARALLEL_BFS
+    private volatile ForkJoinPool searchPool = ForkJoinPool.commonPool();
+    // Worker pool for outputGraphics set with setRenderer; null means the shared default renderer
+    private volatile GraphRenderer renderer;
+    // Whether GraphSearch first rules out destinations outside the components reachable from the source
+    private volatile boolean componentPruning;
+    // Whether snapshots keep node labels as UTF-8 in a direct buffer instead of as Strings
+    private volatile boolean offHeapNames;
+    // Receives parse, mutation, search and export timings
+    private volatile GraphMetricsListener metricsListener = GraphMetricsListener.NONE;
+    private ObjectName metricsName;
+    // Write-ahead journal of mutations while openJournal is in effect; guarded like the graph itself
+    private MutationJournal journal;
+    private java.nio.file.Path journalDirectory;
+    private long journalGeneration;
+    private long journalCommitMillis;
+    private long journalCompactionBytes;
+
+    public DotGraphParser() {
+        this(false);
+    }
+
+    // In concurrent mode any number of threads may mutate and query the parser at once. Mutations and exports are
+    // serialized by a lock; searches, getNodes, getEdges and toString run lock-free on the latest published
+    // snapshot, and only the first reader after a mutation takes the lock to publish a fresh one.
+    public DotGraphParser(boolean concurrent) {
+        this.writeLock = concurrent ? new ReentrantLock() : null;
+    }
 
     // Method to parse a DOT file and create a graph object
     public void parseGraph(String filepath) {
+        lockWrites();
         try {
-            URL resource = getClass().getClassLoader().getResource(filepath);
-            if (resource == null) {
-                throw new IOException("File not found: " + filepath);
+            try {
+                URL resource = getClass().getClassLoader().getResource(filepath);
+                if (resource == null) {
+                    throw new IOException("File not found: " + filepath);
+                }
+                File file = new File(resource.getFile());
+
+                // Parse the file directly into a MutableGraph object
+                long start = System.nanoTime();
+                this.graph = new Parser().read(file);
+                long edges = rebuildIndex();
+                recordParse(start, edges);
+                checkpointJournal();
+
+            } catch (IOException e) {
+                System.err.println("Failed to read DOT file: " + e.getMessage());
             }
-            File file = new File(resource.getFile());
+        } finally {
+            unlockWrites();
+        }
+    }
 
-            // Parse the file directly into a MutableGraph object
-            this.graph = new Parser().read(file);
+    // Method to stream a DOT file from the filesystem straight into the node index
+    public void parseGraph(java.nio.file.Path file) {
+        parseGraph(file, false, null);
+    }
 
+    // Method to stream a DOT file (gzip-compressed if it ends in ".gz"), optionally memory-mapped, reporting progress
+    // to listener (may be null)
+    public void parseGraph(java.nio.file.Path file, boolean memoryMapped, ParseProgressListener listener) {
+        try {
+            readGraph(file, memoryMapped, listener);
         } catch (IOException e) {
             System.err.println("Failed to read DOT file: " + e.getMessage());
         }
     }
 
-    // Method to output graph details
+    // Helper method behind parseGraph that throws read and syntax errors, for callers that must stop on them
+    void readGraph(java.nio.file.Path file, boolean memoryMapped, ParseProgressListener listener) throws IOException {
+        lockWrites();
+        try (InputStream in = memoryMapped
+                ? new DotStreamParser.MappedInputStream(FileChannel.open(file, StandardOpenOption.READ))
+                : Files.newInputStream(file)) {
+            // Files written by outputGraph with gzip are read back transparently
+            streamGraph(file.toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in, listener);
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Method to stream DOT text from any input stream; the stream is left open
+    public void parseGraph(InputStream in, ParseProgressListener listener) {
+        lockWrites();
+        try {
+            try {
+                streamGraph(in, listener);
+            } catch (IOException e) {
+                System.err.println("Failed to read DOT stream: " + e.getMessage());
+            }
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Method to write the current graph to a compact binary snapshot file that loadSnapshot can read back quickly
+    public void saveSnapshot(java.nio.file.Path file) {
+        if (!isInitialized()) {
+            System.err.println("Graph is not initialized.");
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            GraphSnapshotFile.write(file, snapshot(), snapshotHeader());
+            recordExport("snapshot", start);
+        } catch (IOException e) {
+            System.err.println("Failed to write snapshot: " + e.getMessage());
+        }
+    }
+
+    // Method to load a graph saved by saveSnapshot. Searches and node/edge queries run straight off the decoded
+    // arrays; the Graphviz node and link objects are only created on the first mutation or export.
+    public void loadSnapshot(java.nio.file.Path file) {
+        try {
+            readSnapshot(file);
+        } catch (IOException e) {
+            System.err.println("Failed to read snapshot: " + e.getMessage());
+        }
+    }
+
+    // Helper method behind loadSnapshot that throws read errors, for callers that must stop on them
+    void readSnapshot(java.nio.file.Path file) throws IOException {
+        lockWrites();
+        try {
+            long start = System.nanoTime();
+            applySnapshotFile(file);
+            recordParse(start, snapshot.edgeCount());
+            checkpointJournal();
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Helper method to replace the graph with a snapshot file's contents, leaving it unmaterialized
+    private void applySnapshotFile(java.nio.file.Path file) throws IOException {
+        GraphSnapshotFile.Loaded loaded = GraphSnapshotFile.read(file, modCount + 1, offHeapNames);
+        clearGraph();
+        pendingLoad = loaded.header;
+        snapshot = loaded.snapshot;
+        nodeTotal = loaded.snapshot.nodeCount();
+        edgeTotal = loaded.snapshot.distinctEdgeCount();
+    }
+
+    // Helper method to drop the whole graph
+    private void clearGraph() {
+        graph = null;
+        pendingLoad = null;
+        nodeIndex.clear();
+        incomingIndex.clear();
+        nodeTotal = 0;
+        edgeTotal = 0;
+        rootsStale = false;
+        modCount++;
+    }
+
+    // Helper method to describe the current graph for a snapshot file
+    private GraphSnapshotFile.Header snapshotHeader() {
+        GraphSnapshotFile.Header header = pendingLoad;
+        MutableGraph current = graph;
+        if (header != null) {
+            return header;
+        }
+        if (current == null) {
+            return new GraphSnapshotFile.Header("", true, false);
+        }
+        return new GraphSnapshotFile.Header(current.name().toString(), current.isDirected(), current.isStrict());
+    }
+
+    // Method to make later mutations durable through a journal in directory, with 10 ms group commit and
+    // compaction once the journal passes 64 MB
+    public void openJournal(java.nio.file.Path directory) {
+        openJournal(directory, DEFAULT_JOURNAL_COMMIT_MILLIS, DEFAULT_JOURNAL_COMPACTION_BYTES);
+    }
+
+    // Method to make later mutations durable through a journal in directory. If the directory already holds a
+    // graph (its latest compacted snapshot plus the journal written since), that graph is recovered and replaces
+    // the current one; otherwise the current graph becomes the starting point. Journal records are fsynced
+    // together every commitIntervalMillis, and once the journal grows past compactionBytes it is folded into a
+    // new snapshot and restarted. Snapshots keep edge weights but no other attributes.
+    public void openJournal(java.nio.file.Path directory, long commitIntervalMillis, long compactionBytes) {
+        if (commitIntervalMillis <= 0 || compactionBytes <= 0) {
+            throw new IllegalArgumentException("Commit interval and compaction size must be positive.");
+        }
+        lockWrites();
+        try {
+            if (journal != null) {
+                System.err.println("A journal is already open.");
+                return;
+            }
+            Files.createDirectories(directory);
+            journalDirectory = directory;
+            journalCommitMillis = commitIntervalMillis;
+            journalCompactionBytes = compactionBytes;
+
+            long start = System.nanoTime();
+            long generation = latestSnapshotGeneration(directory);
+            if (generation >= 0) {
+                applySnapshotFile(snapshotFile(generation));
+            } else if (Files.exists(journalFile(0))) {
+                generation = 0;
+                clearGraph();
+            } else {
+                // Nothing recorded yet: persist the current graph as generation 1 before journaling on top of it
+                generation = 1;
+                writeSnapshotFile(snapshotFile(generation));
+            }
+            long validLength = MutationJournal.replay(journalFile(generation), generation, this::applyJournalRecord);
+            journal = MutationJournal.open(journalFile(generation), generation, validLength, commitIntervalMillis);
+            journalGeneration = generation;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Journal opened at generation {} in {} ms", generation, (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to open journal: " + e.getMessage());
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Method to block until every mutation so far is on disk
+    public void syncJournal() {
+        MutationJournal current = journal;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.sync();
+        } catch (IOException e) {
+            System.err.println("Failed to sync journal: " + e.getMessage());
+        }
+    }
+
+    // Method to fold the journal into a fresh snapshot now instead of waiting for it to reach the size limit
+    public void compactJournal() {
+        lockWrites();
+        try {
+            if (journal == null) {
+                System.err.println("No journal is open.");
+                return;
+            }
+            rollJournal();
+        } catch (IOException e) {
+            System.err.println("Failed to compact journal: " + e.getMessage());
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Method to flush and close the journal; later mutations are no longer recorded
+    public void closeJournal() {
+        lockWrites();
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close journal: " + e.getMessage());
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Helper method to write the next generation's snapshot, start its empty journal and delete the old pair.
+    // Recovery always uses the newest complete snapshot, so a crash at any point leaves a consistent pair.
+    private void rollJournal() throws IOException {
+        long next = journalGeneration + 1;
+        writeSnapshotFile(snapshotFile(next));
+        MutationJournal previous = journal;
+        journal = MutationJournal.open(journalFile(next), next, 0, journalCommitMillis);
+        previous.close();
+        Files.deleteIfExists(journalFile(journalGeneration));
+        Files.deleteIfExists(snapshotFile(journalGeneration));
+        journalGeneration = next;
+    }
+
+    // Helper method to record one mutation in the journal, compacting it when it grows too large. The in-memory
+    // change has already happened, so a failure here is thrown rather than printed: the caller must know the
+    // mutation is not durable.
+    private void journal(byte type, String first, String second) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(type, first, second);
+            if (journal.size() > journalCompactionBytes) {
+                rollJournal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal mutation", e);
+        }
+    }
+
+    // Helper method to capture a wholesale graph replacement (a parse or load) in the journal's snapshot
+    private void checkpointJournal() {
+        if (journal != null) {
+            try {
+                rollJournal();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to journal the new graph", e);
+            }
+        }
+    }
+
+    // Helper method to apply a replayed journal record; records that no longer apply are skipped
+    private void applyJournalRecord(byte type, String first, String second) {
+        try {
+            switch (type) {
+                case MutationJournal.ADD_NODE:
+                    addNode(first);
+                    break;
+                case MutationJournal.ADD_EDGE:
+                    addEdge(first, second);
+                    break;
+                case MutationJournal.REMOVE_NODE:
+                    removeNode(first);
+                    break;
+                case MutationJournal.REMOVE_EDGE:
+                    removeEdge(first, second);
+                    break;
+                default:
+                    System.err.println("Skipping unknown journal record type " + type);
+            }
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Skipping journal record that no longer applies: {}", e.getMessage());
+        }
+    }
+
+    private void writeSnapshotFile(java.nio.file.Path target) throws IOException {
+        java.nio.file.Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        GraphSnapshotFile.write(temp, snapshot(), snapshotHeader());
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private java.nio.file.Path snapshotFile(long generation) {
+        return journalDirectory.resolve("graph-" + generation + ".snapshot");
+    }
+
+    private java.nio.file.Path journalFile(long generation) {
+        return journalDirectory.resolve("journal-" + generation + ".log");
+    }
+
+    // Highest generation with a complete snapshot in directory, or -1 if there is none
+    private static long latestSnapshotGeneration(java.nio.file.Path directory) throws IOException {
+        long latest = -1;
+        try (DirectoryStream<java.nio.file.Path> files = Files.newDirectoryStream(directory, "graph-*.snapshot")) {
+            for (java.nio.file.Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    latest = Math.max(latest, Long.parseLong(name.substring(6, name.length() - 9)));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return latest;
+    }
+
+    // Helper method to build the Graphviz model for a graph that so far only exists as a loaded snapshot
+    private void materializeLoadedGraph() {
+        GraphSnapshotFile.Header header = pendingLoad;
+        GraphSnapshot snap = snapshot;
+        MutableGraph built = Factory.mutGraph(header.graphName).setDirected(header.directed).setStrict(header.strict);
+        int nodeCount = snap.nodeCount();
+        int[] offsets = snap.offsets();
+        int[] targets = snap.targets();
+        MutableNode[] nodes = new MutableNode[nodeCount];
+        for (int id = 0; id < nodeCount; id++) {
+            nodes[id] = Factory.mutNode(snap.nameOf(id));
+            nodeIndex.put(snap.nameOf(id), nodes[id]);
+        }
+        for (int id = 0; id < nodeCount; id++) {
+            for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+                Link link = Link.to(nodes[targets[e]]);
+                if (snap.weight(e) != 1.0) {
+                    link.attrs().add("weight", snap.weight(e));
+                }
+                nodes[id].addLink(link);
+                incomingIndex.computeIfAbsent(snap.nameOf(targets[e]), k -> new HashSet<>()).add(snap.nameOf(id));
+            }
+            built.add(nodes[id]);
+        }
+        // Publish the graph before clearing pendingLoad, so lock-free readers always see one of them set
+        graph = built;
+        pendingLoad = null;
+        // The model now matches the snapshot exactly, so modCount stays put and the snapshot remains current
+    }
+
+    // Method to parse every file in a directory matching a glob (e.g. "*.dot") in parallel and merge them into one graph
+    public void parseGraphs(java.nio.file.Path directory, String glob, ExecutorService executor) {
+        List<java.nio.file.Path> files = new ArrayList<>();
+        try (DirectoryStream<java.nio.file.Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (java.nio.file.Path file : stream) {
+                files.add(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list DOT files: " + e.getMessage());
+            return;
+        }
+        Collections.sort(files);
+        parseGraphs(files, executor);
+    }
+
+    // Method to parse several DOT files in parallel on the common fork-join pool and merge them into one graph
+    public void parseGraphs(List<java.nio.file.Path> files) {
+        parseGraphs(files, ForkJoinPool.commonPool());
+    }
+
+    // Method to parse several DOT files in parallel on the given executor and merge them into one graph.
+    // Nodes and edges are deduplicated by name; the graph name and kind come from the first file.
+    public void parseGraphs(List<java.nio.file.Path> files, ExecutorService executor) {
+        lockWrites();
+        try {
+            long start = System.nanoTime();
+            List<Future<DotShard>> shards = new ArrayList<>();
+            for (java.nio.file.Path file : files) {
+                shards.add(executor.submit(() -> {
+                    DotShard shard = new DotShard();
+                    try (InputStream in = Files.newInputStream(file)) {
+                        new DotStreamParser(new InputStreamReader(in, StandardCharsets.UTF_8), shard).parse();
+                    }
+                    return shard;
+                }));
+            }
+
+            // Merge in submission order so the result is deterministic; later files keep parsing meanwhile. The merge
+            // goes into a separate parser that replaces this graph only if at least one file was read.
+            DotGraphParser merged = new DotGraphParser();
+            StreamingLoader loader = merged.new StreamingLoader(null, null);
+            boolean first = true;
+            for (int i = 0; i < shards.size(); i++) {
+                DotShard shard;
+                try {
+                    shard = shards.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Failed to read DOT file " + files.get(i) + ": " + e.getCause().getMessage());
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (first) {
+                    loader.header(shard.strict, shard.directed, shard.name);
+                    first = false;
+                }
+                shard.replay(loader);
+            }
+            if (first) {
+                return;  // No file was read, so the graph is unchanged and there is no parse to record
+            }
+            adoptGraph(merged);
+            recordParse(start, loader.edgeCount);
+            checkpointJournal();
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // The file is loaded into a separate parser and only swapped in once it has parsed completely, so a read or
+    // syntax error part-way through leaves the current graph as it was
+    private void streamGraph(InputStream in, ParseProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+        DotStreamParser.CountingInputStream counter = new DotStreamParser.CountingInputStream(in);
+        DotGraphParser loaded = new DotGraphParser();
+        StreamingLoader loader = loaded.new StreamingLoader(counter, listener);
+        new DotStreamParser(new InputStreamReader(counter, StandardCharsets.UTF_8), loader).parse();
+        adoptGraph(loaded);
+        recordParse(start, loader.edgeCount);
+        checkpointJournal();
+        if (listener != null) {
+            listener.onComplete(counter.getCount(), nodeIndex.size(), loader.edgeCount, System.nanoTime() - start);
+        }
+    }
+
+    // Feeds statements from DotStreamParser straight into the graph and its indexes
+    private class StreamingLoader implements DotStreamParser.Handler {
+        private static final int PROGRESS_INTERVAL = 1 << 16;
+
+        private final DotStreamParser.CountingInputStream counter;
+        private final ParseProgressListener listener;
+        private long statements;
+        private long edgeCount;
+
+        StreamingLoader(DotStreamParser.CountingInputStream counter, ParseProgressListener listener) {
+            this.counter = counter;
+            this.listener = listener;
+        }
+
+        @Override
+        public void header(boolean strict, boolean directed, String name) {
+            graph = Factory.mutGraph(name).setDirected(directed).setStrict(strict);
+            pendingLoad = null;
+            nodeIndex.clear();
+            incomingIndex.clear();
+            nodeTotal = 0;
+            edgeTotal = 0;
+            rootsStale = false;
+            modCount++;
+        }
+
+        @Override
+        public void defaultAttribute(String target, String key, String value) {
+            if (target.equals("node")) {
+                graph.nodeAttrs().add(key, value);
+            } else if (target.equals("edge")) {
+                graph.linkAttrs().add(key, value);
+            } else {
+                graph.graphAttrs().add(key, value);
+            }
+        }
+
+        @Override
+        public void node(String name, Map<String, String> attributes) {
+            MutableNode node = getOrCreateNode(name);
+            if (attributes != null) {
+                attributes.forEach(node::add);
+            }
+            reportProgress();
+        }
+
+        @Override
+        public void edge(String from, String to, Map<String, String> attributes) {
+            if (linkNodes(from, to, attributes)) {
+                edgeCount++;
+            }
+            reportProgress();
+        }
+
+        private void reportProgress() {
+            if (listener != null && ++statements % PROGRESS_INTERVAL == 0) {
+                listener.onProgress(counter.getCount(), nodeIndex.size(), edgeCount);
+            }
+        }
+    }
+
     @Override
     public String toString() {
-        if (graph == null) {
+        if (!isInitialized()) {
             return "No graph available.";
         }
 
@@ -68,334 +654,840 @@ public class DotGraphParser {
 
     // Method to add a single node to the graph
     public void addNode(String nodeName) {
-        if (graph == null) {
-            graph = Factory.mutGraph();  // Initialize the graph if it wasn't already
-        }
+        long start = System.nanoTime();
+        beginWrite();
+        try {
+            if (graph == null) {
+                graph = Factory.mutGraph();  // Initialize the graph if it wasn't already
+            }
 
-        if (graph.nodes().stream().noneMatch(node -> node.name().toString().equals(nodeName))) {
-            graph.add(Factory.mutNode(nodeName));
+            long before = modCount;
+            getOrCreateNode(nodeName);
+            if (modCount != before) {
+                journal(MutationJournal.ADD_NODE, nodeName, null);
+            }
+            recordMutation(GraphMetricsListener.Mutation.ADD_NODE, start);
+        } finally {
+            unlockWrites();
         }
     }
 
     // Method to remove nodes
     public void removeNode(String label) {
-        if (graph == null) {
-            System.err.println("Graph is not initialized.");
-            return;
-        }
+        long start = System.nanoTime();
+        beginWrite();
+        try {
+            if (graph == null) {
+                System.err.println("Graph is not initialized.");
+                return;
+            }
 
-        // Check if the node exists in the graph before proceeding
-        boolean nodeExists = graph.nodes().stream()
-                .anyMatch(node -> node.name().toString().equals(label));
+            // Check if the node exists in the graph before proceeding
+            if (!nodeIndex.containsKey(label)) {
+                throw new IllegalArgumentException("Node " + label + " does not exist in the graph.");
+            }
 
-        if (!nodeExists) {
-            throw new IllegalArgumentException("Node " + label + " does not exist in the graph.");
+            unlinkNodes(Collections.singleton(label));
+            journal(MutationJournal.REMOVE_NODE, label, null);
+            recordMutation(GraphMetricsListener.Mutation.REMOVE_NODE, start);
+            LOG.debug("Node {} removed", label);
+        } finally {
+            unlockWrites();
         }
+    }
 
-        // Copy nodes and edges to a new structure
-        Set<String> nodesToKeep = new HashSet<>();
-        List<String[]> edgesToKeep = new ArrayList<>();
+    //Method to remove nodes
+    public void removeNodes(String[] labels) {
+        long start = System.nanoTime();
+        beginWrite();
+        try {
+            if (graph == null) {
+                System.err.println("Graph is not initialized.");
+                return;
+            }
 
-        for (MutableNode node : graph.nodes()) {
-            if (!node.name().toString().equals(label)) {
-                nodesToKeep.add(node.name().toString());
-                for (Link link : node.links()) {
-                    if (!link.to().name().toString().equals(label)) {
-                        edgesToKeep.add(new String[]{node.name().toString(), link.to().name().toString()});
-                    }
+            // Collect the labels that exist so all of them can be unlinked in a single pass
+            Set<String> labelsToRemove = new HashSet<>();
+            for (String label : labels) {
+                if (nodeIndex.containsKey(label)) {
+                    labelsToRemove.add(label);
+                } else {
+                    LOG.debug("Skipping removal for non-existing node {}", label);
                 }
             }
+            unlinkNodes(labelsToRemove);
+            for (String label : labelsToRemove) {
+                journal(MutationJournal.REMOVE_NODE, label, null);
+            }
+            recordMutation(GraphMetricsListener.Mutation.REMOVE_NODES, start);
+            LOG.debug("Removed {} of {} requested nodes", labelsToRemove.size(), labels.length);
+        } finally {
+            unlockWrites();
         }
+    }
 
-        // Clear the graph completely and recreate it without the target node
-        graph = Factory.mutGraph().setDirected(true);
-
-        // Re-add nodes
-        for (String nodeName : nodesToKeep) {
-            graph.add(Factory.mutNode(nodeName));
+    // Helper method to remove existing nodes in place, touching only the edges incident to them
+    private void unlinkNodes(Set<String> labels) {
+        if (labels.isEmpty()) {
+            return;
         }
 
-        // Re-add edges
-        for (String[] edge : edgesToKeep) {
-            MutableNode sourceNode = getOrCreateNode(edge[0]);
-            MutableNode targetNode = getOrCreateNode(edge[1]);
-            sourceNode.addLink(targetNode);
+        // Surviving nodes with an edge into the removed set each get one pass over their links
+        Set<String> affectedSources = new HashSet<>();
+        long removedEdges = 0;
+        for (String label : labels) {
+            Set<String> incoming = incomingIndex.getOrDefault(label, Collections.emptySet());
+            removedEdges += incoming.size();
+            for (String source : incoming) {
+                if (!labels.contains(source)) {
+                    affectedSources.add(source);
+                }
+            }
         }
-
-        System.out.println("Node " + label + " removed successfully.");
-    }
-
-    //Method to remove nodes
-    public void removeNodes(String[] labels) {
-        if (graph == null) {
-            System.err.println("Graph is not initialized.");
-            return;
+        for (String source : affectedSources) {
+            nodeIndex.get(source).links().removeIf(link -> labels.contains(link.to().name().toString()));
         }
 
-        // Iterate over each label and call removeNode for each one
+        // Drop the removed nodes from the incoming lists of the nodes they pointed at
         for (String label : labels) {
-            try {
-                removeNode(label);  // Reuse removeNode method to handle each node
-            } catch (IllegalArgumentException e) {
-                System.out.println("Skipping removal for non-existing node: " + label);
+            for (Link link : nodeIndex.get(label).links()) {
+                String target = link.to().name().toString();
+                Set<String> sources = incomingIndex.get(target);
+                // Edges between two removed nodes were already counted as the target's incoming edges
+                if (sources != null && sources.remove(label) && !labels.contains(target)) {
+                    removedEdges++;
+                }
             }
         }
 
-        System.out.println("Nodes " + String.join(", ", labels) + " removed successfully.");
+        for (String label : labels) {
+            nodeIndex.remove(label);
+            incomingIndex.remove(label);
+        }
+        nodeTotal -= labels.size();
+        edgeTotal -= removedEdges;
+        rootsStale = true;
+        modCount++;
     }
 
     // Method to add multiple nodes
     public void addNodes(Set<String> nodeNames) {
-        if (graph == null) {
-            graph = Factory.mutGraph();
-        }
-        for (String nodeName : nodeNames) {
-            addNode(nodeName);
+        beginWrite();
+        try {
+            if (graph == null) {
+                graph = Factory.mutGraph();
+            }
+            for (String nodeName : nodeNames) {
+                addNode(nodeName);
+            }
+        } finally {
+            unlockWrites();
         }
     }
 
     public void removeEdge(String srcLabel, String dstLabel) {
-        if (graph == null) {
-            System.err.println("Graph is not initialized.");
-            return;
-        }
-
-        // Locate the source node
-        MutableNode sourceNode = graph.nodes().stream()
-                .filter(node -> node.name().toString().equals(srcLabel))
-                .findFirst()
-                .orElse(null);
+        long start = System.nanoTime();
+        beginWrite();
+        try {
+            if (graph == null) {
+                System.err.println("Graph is not initialized.");
+                return;
+            }
 
-        // Locate the destination node
-        MutableNode targetNode = graph.nodes().stream()
-                .filter(node -> node.name().toString().equals(dstLabel))
-                .findFirst()
-                .orElse(null);
+            // Locate the source and destination nodes
+            MutableNode sourceNode = nodeIndex.get(srcLabel);
+            MutableNode targetNode = nodeIndex.get(dstLabel);
 
-        // Check if source and destination nodes exist
-        if (sourceNode == null) {
-            throw new IllegalArgumentException("Source node " + srcLabel + " does not exist in the graph.");
-        }
-        if (targetNode == null) {
-            throw new IllegalArgumentException("Destination node " + dstLabel + " does not exist in the graph.");
-        }
+            // Check if source and destination nodes exist
+            if (sourceNode == null) {
+                throw new IllegalArgumentException("Source node " + srcLabel + " does not exist in the graph.");
+            }
+            if (targetNode == null) {
+                throw new IllegalArgumentException("Destination node " + dstLabel + " does not exist in the graph.");
+            }
 
-        // Check if the edge exists and remove it
-        boolean edgeRemoved = sourceNode.links().removeIf(link -> link.to().name().toString().equals(dstLabel));
+            // Check if the edge exists and remove it
+            boolean edgeRemoved = sourceNode.links().removeIf(link -> link.to().name().toString().equals(dstLabel));
 
-        if (!edgeRemoved) {
-            throw new IllegalArgumentException("Edge from " + srcLabel + " to " + dstLabel + " does not exist in the graph.");
+            if (!edgeRemoved) {
+                throw new IllegalArgumentException("Edge from " + srcLabel + " to " + dstLabel + " does not exist in the graph.");
+            }
+            incomingIndex.get(dstLabel).remove(srcLabel);
+            edgeTotal--;
+            modCount++;
+            journal(MutationJournal.REMOVE_EDGE, srcLabel, dstLabel);
+            recordMutation(GraphMetricsListener.Mutation.REMOVE_EDGE, start);
+            LOG.debug("Edge {} -> {} removed", srcLabel, dstLabel);
+        } finally {
+            unlockWrites();
         }
-
-        System.out.println("Edge from " + srcLabel + " to " + dstLabel + " removed successfully.");
     }
 
     // Method to add an edge between two nodes
     public void addEdge(String sourceName, String targetName) {
-        if (graph == null) {
-            graph = Factory.mutGraph();  // Initialize the graph if it’s not already
+        long start = System.nanoTime();
+        beginWrite();
+        try {
+            if (graph == null) {
+                graph = Factory.mutGraph();  // Initialize the graph if it’s not already
+            }
+
+            long before = modCount;
+            linkNodes(sourceName, targetName, null);
+            if (modCount != before) {
+                journal(MutationJournal.ADD_EDGE, sourceName, targetName);
+            }
+            recordMutation(GraphMetricsListener.Mutation.ADD_EDGE, start);
+        } finally {
+            unlockWrites();
         }
+    }
 
+    // Helper method to add a directed edge (with optional attributes) unless it exists; returns true if added
+    private boolean linkNodes(String sourceName, String targetName, Map<String, String> attributes) {
         // Get or create the source and target nodes
         MutableNode sourceNode = getOrCreateNode(sourceName);
         MutableNode targetNode = getOrCreateNode(targetName);
 
-        // Check if the edge already exists (optional, depending on requirements)
-        boolean edgeExists = sourceNode.links().stream()
-                .anyMatch(link -> link.to().equals(targetNode));
+        // Check if the edge already exists using the reverse index
+        Set<String> sources = incomingIndex.computeIfAbsent(targetName, k -> new HashSet<>());
+        if (!sources.add(sourceName)) {
+            return false;
+        }
 
-        if (!edgeExists) {
-            // Add a directed link if it doesn't already exist
+        // Add a directed link if it doesn't already exist
+        if (attributes == null) {
             sourceNode.addLink(targetNode);
+        } else {
+            Link link = Link.to(targetNode);
+            attributes.forEach(link.attrs()::add);
+            sourceNode.addLink(link);
         }
+        edgeTotal++;
+        modCount++;
+        return true;
     }
 
     // Helper method to get or create a node
     private MutableNode getOrCreateNode(String nodeName) {
+        MutableNode node = nodeIndex.get(nodeName);
+        if (node == null) {
+            node = Factory.mutNode(nodeName);
+            graph.add(node);
+            nodeIndex.put(nodeName, node);
+            nodeTotal++;
+            modCount++;
+        }
+        return node;
+    }
+
+    // Helper method to replace this parser's graph with one loaded into another parser. The indexes are swapped in
+    // before the volatile graph is published, so lock-free readers that see the new graph see them too.
+    private void adoptGraph(DotGraphParser loaded) {
+        nodeIndex = loaded.nodeIndex;
+        incomingIndex = loaded.incomingIndex;
+        nodeTotal = loaded.nodeTotal;
+        edgeTotal = loaded.edgeTotal;
+        rootsStale = loaded.rootsStale;
+        graph = loaded.graph;
+        pendingLoad = null;
+        modCount++;
+    }
+
+    // Helper method to rebuild the name index after the graph is replaced wholesale
+    private long rebuildIndex() {
+        pendingLoad = null;
+        nodeIndex.clear();
+        incomingIndex.clear();
+        rootsStale = false;
+        modCount++;
+        // graph.nodes() also walks link targets, so nodes that only appear on the right of an edge are indexed too
+        long edges = 0;
+        long distinct = 0;
         for (MutableNode node : graph.nodes()) {
-            if (node.name().toString().equals(nodeName)) {
-                return node;
+            String source = node.name().toString();
+            nodeIndex.put(source, node);
+            for (Link link : node.links()) {
+                if (incomingIndex.computeIfAbsent(link.to().name().toString(), k -> new HashSet<>()).add(source)) {
+                    distinct++;
+                }
+                edges++;
             }
         }
-        MutableNode newNode = Factory.mutNode(nodeName);
-        graph.add(newNode);
-        return newNode;
+        nodeTotal = nodeIndex.size();
+        edgeTotal = distinct;
+        return edges;
     }
 
-    // Getter for nodes
-    public Set<String> getNodes() {
-        Set<String> nodes = new HashSet<>();
-        if (graph != null) {
-            for (MutableNode node : graph.nodes()) {
-                nodes.add(node.name().toString());
-            }
+    // Helper method to bring graph's node set back in line with the index before Graphviz walks it
+    private void syncRoots() {
+        if (rootsStale) {
+            graph.rootNodes().clear();
+            graph.rootNodes().addAll(nodeIndex.values());
+            rootsStale = false;
         }
-        System.out.println("Current nodes in graph: " + nodes);
-        return nodes;
     }
 
-    // Getter for edges
+    // Getter for nodes as a live read-only view: size and contains always reflect the current graph in O(1),
+    // and each iterator, stream or spliterator walks the graph as it was when it was created
+    public Set<String> getNodes() {
+        return nodeView;
+    }
+
+    // Getter for edges as "source -> target" strings, as a live read-only view like getNodes
     public Set<String> getEdges() {
-        Set<String> edges = new HashSet<>();
-        if (graph != null) {
-            for (MutableNode node : graph.nodes()) {
-                for (Link link : node.links()) {
-                    LinkTarget target = link.to();
-                    String targetName = extractTargetName(target);
-                    edges.add(node.name() + " -> " + targetName);
+        return edgeView;
+    }
+
+    public int nodeCount() {
+        return nodeTotal;
+    }
+
+    // Number of edges; parallel edges between the same two nodes count once
+    public long edgeCount() {
+        return edgeTotal;
+    }
+
+    public boolean containsNode(String label) {
+        GraphSnapshot snap = snapshot;
+        if (snap != null && snap.version() == modCount) {
+            return snap.idOf(label) >= 0;
+        }
+        lockWrites();
+        try {
+            return nodeIndex.containsKey(label);
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    public boolean containsEdge(String srcLabel, String dstLabel) {
+        GraphSnapshot snap = snapshot;
+        if (snap != null && snap.version() == modCount) {
+            return snap.hasEdge(snap.idOf(srcLabel), snap.idOf(dstLabel));
+        }
+        lockWrites();
+        try {
+            return incomingIndex.getOrDefault(dstLabel, Collections.emptySet()).contains(srcLabel);
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Method to page through the current edges pageSize at a time; the cursor keeps reading the graph as it was
+    // when opened, so pages stay consistent while the graph changes
+    public EdgeCursor edgeCursor(int pageSize) {
+        return new EdgeCursor(snapshot(), pageSize);
+    }
+
+    // Live node view: counts and lookups go to the parser's index, iteration to the current snapshot
+    private final class NodeView extends AbstractSet<String> {
+        @Override
+        public int size() {
+            return nodeCount();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && containsNode((String) o);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Spliterators.iterator(spliterator());
+        }
+
+        @Override
+        public Spliterator<String> spliterator() {
+            GraphSnapshot snap = snapshot();
+            return snap.nodeSpliterator(0, snap.nodeCount());
+        }
+    }
+
+    // Live edge view; labels may contain " -> ", so contains tries every split point
+    private final class EdgeView extends AbstractSet<String> {
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, edgeCount());
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String)) {
+                return false;
+            }
+            String edge = (String) o;
+            for (int split = edge.indexOf(" -> "); split >= 0; split = edge.indexOf(" -> ", split + 1)) {
+                if (containsEdge(edge.substring(0, split), edge.substring(split + 4))) {
+                    return true;
                 }
             }
+            return false;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Spliterators.iterator(spliterator());
         }
-        return edges;
-    }
 
-    // Helper method to clean up target name
-    private String extractTargetName(Object target) {
-        String name = target.toString();
-        name = name.replaceAll("->.*", ""); // Remove arrow symbols and connections
-        name = name.replaceAll("\\{.*?\\}", ""); // Remove curly braces
-        name = name.replace("::", "").trim(); // Remove "::" specifically
-        return name;
+        @Override
+        public Spliterator<String> spliterator() {
+            GraphSnapshot snap = snapshot();
+            return snap.edgeSpliterator(0, snap.edgeCount());
+        }
     }
 
-    // Method to output the graph to a specified DOT file
+    // Method to output the graph to a specified DOT file; a path ending in ".gz" is gzip-compressed
     public void outputGraph(String filepath) {
-        if (graph == null) {
-            System.err.println("No graph available to output.");
-            return;
-        }
+        outputGraph(Paths.get(filepath), filepath.endsWith(".gz"));
+    }
+
+    // Method to stream the graph as DOT text to a file, optionally gzip-compressed. This is a direct serializer,
+    // not a Graphviz render: memory use is one write buffer regardless of graph size, and parseGraph reads the
+    // result back into the same graph.
+    public void outputGraph(java.nio.file.Path file, boolean gzip) {
         try {
-            Graphviz.fromGraph(graph).render(Format.DOT).toFile(new File(filepath));
+            writeGraph(file, gzip);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
         } catch (IOException e) {
             System.err.println("Failed to write DOT file: " + e.getMessage());
         }
     }
 
-    // Method to output the graph as a graphic (e.g., PNG)
+    // Helper method behind outputGraph that throws write errors, and IllegalStateException when there is no graph,
+    // for callers that must report them
+    void writeGraph(java.nio.file.Path file, boolean gzip) throws IOException {
+        lockWrites();
+        try {
+            if (!isInitialized()) {
+                throw new IllegalStateException("No graph available to output.");
+            }
+            try (OutputStream stream = gzip
+                    ? new GZIPOutputStream(Files.newOutputStream(file), 1 << 16)
+                    : Files.newOutputStream(file);
+                 Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16)) {
+                long start = System.nanoTime();
+                writeDot(out);
+                out.flush();
+                recordExport(gzip ? "dot.gz" : "dot", start);
+            }
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    // Helper method to serialize the current graph as DOT text; callers hold the write lock
+    private void writeDot(Writer out) throws IOException {
+        GraphSnapshotFile.Header header = pendingLoad;
+        if (header != null) {
+            // A loaded snapshot is written straight from its arrays rather than materialized first
+            DotWriter.write(out, header.graphName, header.directed, header.strict, snapshot);
+        } else {
+            DotWriter.write(out, graph.name().toString(), graph.isDirected(), graph.isStrict(),
+                    graph.graphAttrs(), graph.nodeAttrs(), graph.linkAttrs(), nodeIndex.values(), incomingIndex);
+        }
+    }
+
+    // Method to output the graph as a graphic: png, svg, ps, json, plain, or dot
     public void outputGraphics(String path, String format) {
-        if (graph == null) {
-            System.err.println("No graph available to output.");
+        if (!GraphRenderer.isSupported(format)) {
+            System.err.println("Unsupported format: " + format);
             return;
         }
         try {
-            Format outputFormat = format.equalsIgnoreCase("png") ? Format.PNG : null;
-            if (outputFormat != null) {
-                Graphviz.fromGraph(graph).render(outputFormat).toFile(new File(path));
-            } else {
-                System.err.println("Unsupported format: " + format);
+            outputGraphicsAsync(path, format).join();
+        } catch (CompletionException e) {
+            System.err.println("Failed to write graphic file: " + e.getCause().getMessage());
+        }
+    }
+
+    // Method to render the graph in the background. The graph is captured as DOT text when this is called, so later
+    // mutations do not affect the image. Blocks only while the renderer's queue is full.
+    public CompletableFuture<File> outputGraphicsAsync(String path, String format) {
+        String dot;
+        lockWrites();
+        try {
+            if (!isInitialized()) {
+                CompletableFuture<File> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IllegalStateException("No graph available to output."));
+                return failed;
             }
+            StringWriter out = new StringWriter();
+            writeDot(out);
+            dot = out.toString();
         } catch (IOException e) {
-            System.err.println("Failed to write graphic file: " + e.getMessage());
+            CompletableFuture<File> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        } finally {
+            unlockWrites();
+        }
+        long start = System.nanoTime();
+        return getRenderer().render(dot, format, Paths.get(path)).whenComplete((file, error) -> {
+            if (error == null) {
+                recordExport(format, start);
+            }
+        });
+    }
+
+    // Method to share a renderer between parsers or size it for the workload
+    public void setRenderer(GraphRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    // Getter for the renderer used by outputGraphics: the one set with setRenderer, or else the shared default
+    public GraphRenderer getRenderer() {
+        GraphRenderer current = renderer;
+        return current != null ? current : DefaultRenderer.INSTANCE;
+    }
+
+    // Renderer for parsers that were not given one. It is created on first use and shared by every parser, so the
+    // warmed-up engines are paid for once per JVM, and a shutdown hook closes it when the JVM exits.
+    private static final class DefaultRenderer {
+        static final GraphRenderer INSTANCE = create();
+
+        private static GraphRenderer create() {
+            GraphRenderer shared = new GraphRenderer(Math.min(4, Runtime.getRuntime().availableProcessors()), 64);
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close, "graph-renderer-shutdown"));
+            return shared;
         }
     }
 
     public Path GraphSearch(String srcLabel, String dstLabel, Algorithm algo) {
-        if (graph == null) {
+        long start = System.nanoTime();
+        if (!isInitialized()) {
             System.err.println("Graph is not initialized.");
             return null;
         }
 
-        Object sourceNode = findNodeByName(srcLabel);
-        Object destinationNode = findNodeByName(dstLabel);
-        if (sourceNode == null || destinationNode == null) {
+        GraphSnapshot snap = snapshot();
+        int source = snap.idOf(srcLabel);
+        int destination = snap.idOf(dstLabel);
+        if (source < 0 || destination < 0) {
             System.err.println("Source or destination node not found in the graph.");
             return null;
         }
 
-        return algo == Algorithm.BFS ? bfsSearch(sourceNode, destinationNode) : dfsSearch(sourceNode, destinationNode);
+        int[] ids = searchCache.lookup(srcLabel, dstLabel, algo, snap.version());
+        if (ids != null) {
+            recordSearch(algo, start, 0, ids != SearchCache.NO_PATH, true);
+            return ids == SearchCache.NO_PATH ? null : toPath(snap, ids);
+        }
+
+        if (componentPruning && !snap.reachability().isReachable(source, destination)) {
+            // The destination's component is not downstream of the source's: no need to search
+            searchCache.store(srcLabel, dstLabel, algo, snap.version(), null);
+            recordSearch(algo, start, 0, false, false);
+            return null;
+        }
+
+        GraphSnapshot.SearchResult result;
+        switch (algo) {
+            case BFS:
+                result = snap.bfs(source, destination);
+                break;
+            case BIDIRECTIONAL_BFS:
+                result = snap.bidirectionalBfs(source, destination);
+                break;
+            case DIJKSTRA:
+                result = snap.dijkstra(source, destination);
+                break;
+            case A_STAR:
+                result = snap.aStar(source, destination, heuristic);
+                break;
+            case PARALLEL_BFS:
+                result = ParallelBfs.search(snap, source, destination, searchPool);
+                break;
+            default:
+                result = snap.dfs(source, destination);
+                break;
+        }
+        ids = result.path;
+        searchCache.store(srcLabel, dstLabel, algo, snap.version(), ids);
+        recordSearch(algo, start, result.visited, ids != null, false);
+        return ids == null ? null : toPath(snap, ids);
     }
 
-    private Path bfsSearch(Object sourceNode, Object destinationNode) {
-        Queue<Object> queue = new LinkedList<>();
-        Map<Object, Object> parentMap = new HashMap<>();
-        Set<Object> visited = new HashSet<>();
+    // Method to bound the number of cached search results; 0 disables the cache
+    public void setSearchCacheSize(int maxSize) {
+        searchCache.setMaxSize(maxSize);
+    }
 
-        queue.add(sourceNode);
-        visited.add(sourceNode);
+    // Getter for the search result cache, for its size limit and hit/miss/eviction statistics
+    public SearchCache getSearchCache() {
+        return searchCache;
+    }
 
-        while (!queue.isEmpty()) {
-            Object currentNode = queue.poll();
+    // Method to answer many (source, destination) queries at once; returns one Path (or null) per pair, in request
+    // order. Pairs are grouped by source so each distinct source costs a single traversal, and groups run
+    // concurrently on the search pool. BIDIRECTIONAL_BFS and PARALLEL_BFS are answered from a BFS tree and
+    // A_STAR from a Dijkstra tree, which give paths of the same length/cost.
+    public List<Path> GraphSearchBatch(List<String[]> pairs, Algorithm algo) {
+        Path[] results = new Path[pairs.size()];
+        if (!isInitialized()) {
+            System.err.println("Graph is not initialized.");
+            return Arrays.asList(results);
+        }
 
-            if (currentNode.equals(destinationNode)) {
-                return reconstructPath(sourceNode, destinationNode, parentMap);
+        GraphSnapshot snap = snapshot();
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            int source = snap.idOf(pairs.get(i)[0]);
+            if (source >= 0 && snap.idOf(pairs.get(i)[1]) >= 0) {
+                groups.computeIfAbsent(source, k -> new ArrayList<>()).add(i);
             }
+        }
 
-            for (Link link : getLinks(currentNode)) {
-                Object neighbor = link.to();
-                String neighborLabel = extractTargetName(neighbor);
-                Object neighborNode = findNodeByName(neighborLabel);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+            tasks.add(searchPool.submit(() -> {
+                BitSet wanted = new BitSet(snap.nodeCount());
+                for (int request : group.getValue()) {
+                    wanted.set(snap.idOf(pairs.get(request)[1]));
+                }
+                int source = group.getKey();
+                int wantedCount = wanted.cardinality();
 
-                if (neighborNode != null && !visited.contains(neighborNode)) {
-                    visited.add(neighborNode);
-                    parentMap.put(neighborNode, currentNode);
-                    queue.add(neighborNode);
+                GraphSnapshot.SearchTree tree;
+                if (algo == Algorithm.DFS) {
+                    tree = snap.dfsTree(source, wanted, wantedCount);
+                } else if (algo == Algorithm.DIJKSTRA || algo == Algorithm.A_STAR) {
+                    tree = snap.dijkstraTree(source, wanted, wantedCount);
+                } else {
+                    tree = snap.bfsTree(source, wanted, wantedCount);
                 }
-            }
+
+                for (int request : group.getValue()) {
+                    int[] ids = GraphSnapshot.pathTo(tree, snap.idOf(pairs.get(request)[1]));
+                    results[request] = ids == null ? null : toPath(snap, ids);
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
         }
-        return null; // No path found
+        return Arrays.asList(results);
     }
 
-    private Path dfsSearch(Object sourceNode, Object destinationNode) {
-        Stack<Object> stack = new Stack<>();
-        Map<Object, Object> parentMap = new HashMap<>();
-        Set<Object> visited = new HashSet<>();
+    // Method to answer "is dst reachable from src" from a precomputed index, rebuilt lazily after mutations
+    public boolean isReachable(String srcLabel, String dstLabel) {
+        if (!isInitialized()) {
+            System.err.println("Graph is not initialized.");
+            return false;
+        }
+        GraphSnapshot snap = snapshot();
+        int source = snap.idOf(srcLabel);
+        int destination = snap.idOf(dstLabel);
+        if (source < 0 || destination < 0) {
+            return false;
+        }
+        return getReachabilityIndex().isReachable(source, destination);
+    }
+
+    // Method to keep node labels of future snapshots (built after the next load or mutation) off-heap as UTF-8.
+    // Saves the per-String overhead for graphs held only as a loaded snapshot, at the cost of decoding a label
+    // each time one is read.
+    public void setOffHeapNames(boolean offHeapNames) {
+        this.offHeapNames = offHeapNames;
+    }
 
-        stack.push(sourceNode);
-        visited.add(sourceNode);
+    // Getter for the approximate size of the current snapshot's node-name dictionary, in bytes
+    public long getNameDictionaryBytes() {
+        return isInitialized() ? snapshot().dictionary().memoryBytes() : 0;
+    }
 
-        while (!stack.isEmpty()) {
-            Object currentNode = stack.pop();
+    // Method to lazily list the simple paths from srcLabel to dstLabel with at most maxDepth edges, stopping after
+    // maxCount; paths come in depth-first order and are found one at a time as the stream is consumed
+    public Stream<Path> allPaths(String srcLabel, String dstLabel, int maxDepth, long maxCount) {
+        return allPathsIterator(srcLabel, dstLabel, maxDepth, maxCount).stream();
+    }
 
-            if (currentNode.equals(destinationNode)) {
-                return reconstructPath(sourceNode, destinationNode, parentMap);
-            }
+    public PathIterator allPathsIterator(String srcLabel, String dstLabel, int maxDepth, long maxCount) {
+        if (maxDepth < 0 || maxCount < 0) {
+            throw new IllegalArgumentException("Path depth and count limits must not be negative.");
+        }
+        GraphSnapshot snap = pathSearchSnapshot(srcLabel, dstLabel);
+        if (snap == null) {
+            return PathIterator.empty(null);
+        }
+        return new SimplePathIterator(snap, snap.idOf(srcLabel), snap.idOf(dstLabel), maxDepth, maxCount);
+    }
 
-            for (Link link : getLinks(currentNode)) {
-                Object neighbor = link.to();
-                String neighborLabel = extractTargetName(neighbor);
-                Object neighborNode = findNodeByName(neighborLabel);
+    // Method to lazily list the k cheapest loopless paths from srcLabel to dstLabel (Yen's algorithm), cheapest first
+    public Stream<Path> kShortestPaths(String srcLabel, String dstLabel, int k) {
+        return kShortestPathsIterator(srcLabel, dstLabel, k).stream();
+    }
 
-                if (neighborNode != null && !visited.contains(neighborNode)) {
-                    visited.add(neighborNode);
-                    parentMap.put(neighborNode, currentNode);
-                    stack.push(neighborNode);
-                }
-            }
+    public PathIterator kShortestPathsIterator(String srcLabel, String dstLabel, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Path count limit must not be negative.");
+        }
+        GraphSnapshot snap = pathSearchSnapshot(srcLabel, dstLabel);
+        if (snap == null) {
+            return PathIterator.empty(null);
+        }
+        return new KShortestPathIterator(snap, snap.idOf(srcLabel), snap.idOf(dstLabel), k);
+    }
+
+    // Helper method to pin the snapshot a path enumeration runs on, or null if either end is missing
+    private GraphSnapshot pathSearchSnapshot(String srcLabel, String dstLabel) {
+        if (!isInitialized()) {
+            System.err.println("Graph is not initialized.");
+            return null;
+        }
+        GraphSnapshot snap = snapshot();
+        if (snap.idOf(srcLabel) < 0 || snap.idOf(dstLabel) < 0) {
+            System.err.println("Source or destination node not found in the graph.");
+            return null;
         }
-        return null; // No path found
+        return snap;
     }
 
-    private Path reconstructPath(Object source, Object destination, Map<Object, Object> parentMap) {
-        Path path = new Path();
-        Object current = destination;
+    // Getter for the strongly connected components of the current graph, with the condensation DAG and a
+    // topological order; computed once per graph version
+    public StronglyConnectedComponents getComponents() {
+        if (!isInitialized()) {
+            System.err.println("Graph is not initialized.");
+            return null;
+        }
+        return snapshot().components();
+    }
 
-        while (current != null) {
-            path.addNode(extractTargetName(current));  // Only add clean label
-            current = parentMap.get(current);
-            if (current != null && current.equals(source)) {
-                path.addNode(extractTargetName(source));  // Ensure source is added correctly
-                break;
+    // Method to make GraphSearch return null straight away when the destination's component cannot be reached
+    // from the source's. The component reachability index is built once per graph version, so this pays off when
+    // many searches run between mutations.
+    public void setComponentPruning(boolean componentPruning) {
+        this.componentPruning = componentPruning;
+    }
+
+    // Getter for the reachability index, building it if the graph changed; reports build time and memory use
+    public ReachabilityIndex getReachabilityIndex() {
+        return snapshot().reachability();
+    }
+
+    // Method to set the A_STAR heuristic, called as heuristic(node, destination); null falls back to Dijkstra.
+    // It must never overestimate the remaining cost. An inconsistent heuristic still gives the cheapest path, since
+    // nodes are reopened when a cheaper route reaches them, but may expand nodes more than once.
+    public void setHeuristic(ToDoubleBiFunction<String, String> heuristic) {
+        this.heuristic = heuristic;
+        searchCache.clear();  // Cached A_STAR paths may depend on the old heuristic
+    }
+
+    // Method to set the fork-join pool used by PARALLEL_BFS (defaults to the common pool)
+    public void setSearchPool(ForkJoinPool searchPool) {
+        this.searchPool = searchPool;
+    }
+
+    // Method to receive timings and sizes for parses, mutations, searches and exports; null stops reporting
+    public void setMetricsListener(GraphMetricsListener listener) {
+        this.metricsListener = listener == null ? GraphMetricsListener.NONE : listener;
+    }
+
+    // Method to collect metrics for this parser and publish them as the JMX MBean
+    // "DotGraphParser:type=GraphMetrics,name=<name>". Node and edge counts are those of the latest snapshot.
+    public synchronized GraphMetrics enableMetrics(String name) {
+        GraphMetrics metrics = new GraphMetrics(this::nodeCount, this::edgeCount);
+        disableMetrics();
+        try {
+            metricsName = new ObjectName("DotGraphParser:type=GraphMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metricsName);
+        } catch (JMException e) {
+            metricsName = null;
+            System.err.println("Failed to register metrics MBean: " + e.getMessage());
+        }
+        setMetricsListener(metrics);
+        return metrics;
+    }
+
+    // Method to stop collecting metrics and unregister the MBean
+    public synchronized void disableMetrics() {
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                System.err.println("Failed to unregister metrics MBean: " + e.getMessage());
             }
+            metricsName = null;
+        }
+        setMetricsListener(null);
+    }
+
+    private void recordParse(long start, long edges) {
+        long elapsed = System.nanoTime() - start;
+        int nodes = pendingLoad != null ? snapshot.nodeCount() : nodeIndex.size();
+        metricsListener.onParse(elapsed, nodes, edges);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Parsed {} nodes and {} edges in {} ms", nodes, edges, elapsed / 1_000_000);
+        }
+    }
+
+    private void recordMutation(GraphMetricsListener.Mutation mutation, long start) {
+        metricsListener.onMutation(mutation, System.nanoTime() - start);
+    }
+
+    private void recordSearch(Algorithm algo, long start, int visited, boolean found, boolean cached) {
+        long elapsed = System.nanoTime() - start;
+        metricsListener.onSearch(algo, elapsed, visited, found, cached);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{} search {} after visiting {} nodes in {} us{}", algo, found ? "found a path" : "found no path",
+                    visited, elapsed / 1_000, cached ? " (cached)" : "");
         }
+    }
 
-        Collections.reverse(path.getNodes());  // Reverse the path for correct order from source to destination
-        return path;
+    private void recordExport(String format, long start) {
+        long elapsed = System.nanoTime() - start;
+        metricsListener.onExport(format, elapsed);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Exported {} in {} ms", format, elapsed / 1_000_000);
+        }
     }
 
-    private Object findNodeByName(String label) {
-        for (Object node : graph.nodes()) {
-            String nodeLabel = node.toString().replaceAll("\\{.*?\\}|->.*", "").trim(); // Remove metadata
-            if (nodeLabel.equals(label)) {
-                return node;
+    // Helper method to return the CSR snapshot, rebuilding it only if the graph changed since it was taken
+    private GraphSnapshot snapshot() {
+        GraphSnapshot snap = snapshot;
+        if (snap != null && snap.version() == modCount) {
+            return snap;
+        }
+        lockWrites();
+        try {
+            snap = snapshot;
+            if (snap == null || snap.version() != modCount) {
+                snap = GraphSnapshot.of(nodeIndex, modCount, offHeapNames);
+                snapshot = snap;
             }
+            return snap;
+        } finally {
+            unlockWrites();
+        }
+    }
+
+    private void lockWrites() {
+        if (writeLock != null) {
+            writeLock.lock();
+        }
+    }
+
+    // Helper method used by every mutation and export that works on the Graphviz model: takes the write lock and
+    // materializes a loaded snapshot first. Whole-graph loads use lockWrites alone, since they replace the model.
+    private void beginWrite() {
+        lockWrites();
+        if (pendingLoad != null) {
+            materializeLoadedGraph();
         }
-        return null;
     }
 
-    private Collection<Link> getLinks(Object node) {
-        if (node instanceof MutableNode) {
-            return ((MutableNode) node).links();
+    private boolean isInitialized() {
+        return graph != null || pendingLoad != null;
+    }
+
+    private void unlockWrites() {
+        if (writeLock != null) {
+            writeLock.unlock();
         }
-        return Collections.emptyList();
+    }
+
+    private Path toPath(GraphSnapshot snap, int[] ids) {
+        return new Path(snap, ids);
     }
 }
@@ -0,0 +1,55 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Statements from one DOT file, recorded by a worker thread so they can be merged into a shared graph later
+final class DotShard implements DotStreamParser.Handler {
+    boolean strict;
+    boolean directed;
+    String name = "";
+
+    private final List<String[]> defaults = new ArrayList<>();
+    private final List<String> nodeNames = new ArrayList<>();
+    private final List<Map<String, String>> nodeAttributes = new ArrayList<>();
+    // Edge endpoints are stored flat: edgeEnds[2i] -> edgeEnds[2i + 1]
+    private final List<String> edgeEnds = new ArrayList<>();
+    private final List<Map<String, String>> edgeAttributes = new ArrayList<>();
+
+    @Override
+    public void header(boolean strict, boolean directed, String name) {
+        this.strict = strict;
+        this.directed = directed;
+        this.name = name;
+    }
+
+    @Override
+    public void defaultAttribute(String target, String key, String value) {
+        defaults.add(new String[]{target, key, value});
+    }
+
+    @Override
+    public void node(String name, Map<String, String> attributes) {
+        nodeNames.add(name);
+        nodeAttributes.add(attributes);
+    }
+
+    @Override
+    public void edge(String from, String to, Map<String, String> attributes) {
+        edgeEnds.add(from);
+        edgeEnds.add(to);
+        edgeAttributes.add(attributes);
+    }
+
+    // Replay everything except the header into another handler, in the order it was parsed
+    void replay(DotStreamParser.Handler target) {
+        for (String[] attribute : defaults) {
+            target.defaultAttribute(attribute[0], attribute[1], attribute[2]);
+        }
+        for (int i = 0; i < nodeNames.size(); i++) {
+            target.node(nodeNames.get(i), nodeAttributes.get(i));
+        }
+        for (int i = 0; i < edgeAttributes.size(); i++) {
+            target.edge(edgeEnds.get(2 * i), edgeEnds.get(2 * i + 1), edgeAttributes.get(i));
+        }
+    }
+}
@@ -0,0 +1,560 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Incremental DOT tokenizer: reads statements one at a time and hands nodes and edges to a Handler,
+// so memory use is bounded by the buffer size rather than the file size
+final class DotStreamParser {
+
+    // Receives parsed statements in file order
+    interface Handler {
+        void header(boolean strict, boolean directed, String name);
+
+        // target is "graph", "node" or "edge"
+        void defaultAttribute(String target, String key, String value);
+
+        // attributes is null when the statement has no attribute list
+        void node(String name, Map<String, String> attributes);
+
+        void edge(String from, String to, Map<String, String> attributes);
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int EOF = 0;
+    private static final int ID = 1;
+    private static final int PUNCT = 2;
+    private static final int EDGE_OP = 3;
+
+    private final Reader reader;
+    private final Handler handler;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int line = 1;
+
+    private final StringBuilder text = new StringBuilder();
+    private int type;
+    private char punct;
+    private boolean quoted;
+    private boolean pushedBack;
+    private String assignmentKey;
+
+    DotStreamParser(Reader reader, Handler handler) {
+        this.reader = reader;
+        this.handler = handler;
+    }
+
+    // Parse a single graph from the reader
+    void parse() throws IOException {
+        next();
+        boolean strict = false;
+        if (isKeyword("strict")) {
+            strict = true;
+            next();
+        }
+        boolean directed;
+        if (isKeyword("digraph")) {
+            directed = true;
+        } else if (isKeyword("graph")) {
+            directed = false;
+        } else {
+            throw error("expected 'graph' or 'digraph'");
+        }
+
+        String name = "";
+        next();
+        if (type == ID) {
+            name = text.toString();
+            next();
+        }
+        expect('{');
+        handler.header(strict, directed, name);
+        parseStatements(null);
+    }
+
+    // Parse statements up to the matching '}', collecting mentioned nodes into members when inside a subgraph
+    private void parseStatements(List<String> members) throws IOException {
+        while (true) {
+            next();
+            if (type == EOF) {
+                throw error("unexpected end of input, missing '}'");
+            }
+            if (isPunct('}')) {
+                return;
+            }
+            if (isPunct(';') || isPunct(',')) {
+                continue;
+            }
+            parseStatement(members);
+        }
+    }
+
+    private void parseStatement(List<String> members) throws IOException {
+        if (isKeyword("graph") || isKeyword("node") || isKeyword("edge")) {
+            String target = text.toString().toLowerCase();
+            next();
+            if (isPunct('[')) {
+                for (Map.Entry<String, String> attribute : parseAttributes().entrySet()) {
+                    handler.defaultAttribute(target, attribute.getKey(), attribute.getValue());
+                }
+                return;
+            }
+            throw error("expected '[' after '" + target + "'");
+        }
+
+        List<String> left = parseOperand();
+        if (left == null) {
+            // ID '=' ID is a graph attribute assignment
+            next();
+            expectId();
+            handler.defaultAttribute("graph", assignmentKey, text.toString());
+            return;
+        }
+
+        next();
+        if (type != EDGE_OP) {
+            Map<String, String> attributes = null;
+            if (isPunct('[')) {
+                attributes = parseAttributes();
+            } else {
+                pushedBack = true;
+            }
+            if (left.size() == 1 && !isSubgraph(left)) {
+                handler.node(left.get(0), attributes);
+            }
+            addMembers(members, left);
+            return;
+        }
+
+        // Edge chain: a -> b -> { c d } [attrs]; attributes apply to every edge in the chain
+        List<List<String>> operands = new ArrayList<>();
+        operands.add(left);
+        while (type == EDGE_OP) {
+            next();
+            List<String> right = parseOperand();
+            if (right == null) {
+                throw error("unexpected '=' in edge statement");
+            }
+            operands.add(right);
+            next();
+        }
+        Map<String, String> attributes = null;
+        if (isPunct('[')) {
+            attributes = parseAttributes();
+        } else {
+            pushedBack = true;
+        }
+
+        for (int i = 0; i + 1 < operands.size(); i++) {
+            for (String from : operands.get(i)) {
+                for (String to : operands.get(i + 1)) {
+                    handler.edge(from, to, attributes);
+                }
+            }
+        }
+        for (List<String> operand : operands) {
+            addMembers(members, operand);
+        }
+    }
+
+    // Parse a node id (with optional port) or a subgraph; returns null for an ID followed by '='
+    private List<String> parseOperand() throws IOException {
+        if (isKeyword("subgraph")) {
+            next();
+            if (type == ID) {
+                next();
+            }
+            expect('{');
+            return parseSubgraph();
+        }
+        if (isPunct('{')) {
+            return parseSubgraph();
+        }
+        expectId();
+        String name = text.toString();
+
+        next();
+        if (isPunct('=')) {
+            assignmentKey = name;
+            return null;
+        }
+        if (isPunct(':')) {
+            // Ports do not affect node identity, so skip "name:port" and "name:port:compass"
+            next();
+            expectId();
+            next();
+            if (isPunct(':')) {
+                next();
+                expectId();
+            } else {
+                pushedBack = true;
+            }
+        } else {
+            pushedBack = true;
+        }
+        List<String> single = new ArrayList<>(1);
+        single.add(name);
+        return single;
+    }
+
+    private List<String> parseSubgraph() throws IOException {
+        List<String> members = new SubgraphMembers();
+        parseStatements(members);
+        return members;
+    }
+
+    private static boolean isSubgraph(List<String> operand) {
+        return operand instanceof SubgraphMembers;
+    }
+
+    // Duplicates are harmless here: the handler deduplicates nodes and edges by name
+    private static void addMembers(List<String> members, List<String> operand) {
+        if (members != null) {
+            members.addAll(operand);
+        }
+    }
+
+    // Parse one or more bracketed attribute lists: [a=b, c=d][e=f]
+    private Map<String, String> parseAttributes() throws IOException {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        while (isPunct('[')) {
+            while (true) {
+                next();
+                if (isPunct(']')) {
+                    break;
+                }
+                if (isPunct(',') || isPunct(';')) {
+                    continue;
+                }
+                expectId();
+                String key = text.toString();
+                next();
+                if (isPunct('=')) {
+                    next();
+                    expectId();
+                    attributes.put(key, text.toString());
+                } else {
+                    attributes.put(key, "true");
+                    pushedBack = true;
+                }
+            }
+            next();
+        }
+        pushedBack = true;
+        return attributes;
+    }
+
+    // Keywords are case-insensitive and never quoted; compares in place to avoid a String per token
+    private boolean isKeyword(String keyword) {
+        if (type != ID || quoted || text.length() != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (Character.toLowerCase(text.charAt(i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isPunct(char c) {
+        return type == PUNCT && punct == c;
+    }
+
+    private void expect(char c) throws IOException {
+        if (!isPunct(c)) {
+            throw error("expected '" + c + "'");
+        }
+    }
+
+    private void expectId() throws IOException {
+        if (type != ID) {
+            throw error("expected an identifier");
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("DOT syntax error at line " + line + ": " + message);
+    }
+
+    // Advance to the next token, leaving its kind in type and any identifier text in text
+    private void next() throws IOException {
+        if (pushedBack) {
+            pushedBack = false;
+            return;
+        }
+        int c = skipWhitespaceAndComments();
+        if (c < 0) {
+            type = EOF;
+            return;
+        }
+
+        switch (c) {
+            case '{': case '}': case '[': case ']': case '=': case ';': case ',': case ':':
+                type = PUNCT;
+                punct = (char) c;
+                return;
+            case '"':
+                readQuoted();
+                return;
+            case '<':
+                readHtml();
+                return;
+            case '-': {
+                int n = peekChar();
+                if (n == '>' || n == '-') {
+                    read();
+                    type = EDGE_OP;
+                    return;
+                }
+                // Negative numeral
+                text.setLength(0);
+                text.append('-');
+                while (isIdChar(peekChar())) {
+                    text.append((char) read());
+                }
+                type = ID;
+                quoted = false;
+                return;
+            }
+            default:
+                break;
+        }
+
+        if (!isIdChar(c)) {
+            throw error("unexpected character '" + (char) c + "'");
+        }
+        text.setLength(0);
+        text.append((char) c);
+        while (isIdChar(peekChar())) {
+            text.append((char) read());
+        }
+        type = ID;
+        quoted = false;
+    }
+
+    private void readQuoted() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw error("unterminated string");
+            }
+            if (c == '"') {
+                break;
+            }
+            // As in Graphviz, a backslash escapes only a quote or a newline; any other backslash is kept as is and
+            // the character after it is read on its own
+            if (c == '\\') {
+                int n = peekChar();
+                if (n == '"') {
+                    read();
+                    text.append('"');
+                    continue;
+                } else if (n == '\n') {
+                    read();
+                    line++; // Escaped newline continues the string
+                    continue;
+                }
+            }
+            if (c == '\n') {
+                line++;
+            }
+            text.append((char) c);
+        }
+        type = ID;
+        quoted = true;
+    }
+
+    private void readHtml() throws IOException {
+        text.setLength(0);
+        int depth = 1;
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw error("unterminated HTML string");
+            }
+            if (c == '<') {
+                depth++;
+            } else if (c == '>' && --depth == 0) {
+                break;
+            } else if (c == '\n') {
+                line++;
+            }
+            text.append((char) c);
+        }
+        type = ID;
+        quoted = true;
+    }
+
+    private int skipWhitespaceAndComments() throws IOException {
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                return c;
+            }
+            if (c == '\n') {
+                line++;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            // '#' lines are C preprocessor output; '#' cannot start an unquoted ID, so treat it as a comment anywhere
+            if (c == '#') {
+                skipLine();
+                continue;
+            }
+            if (c == '/' && peekChar() == '/') {
+                skipLine();
+                continue;
+            }
+            if (c == '/' && peekChar() == '*') {
+                read();
+                int previous = 0;
+                while ((c = read()) >= 0 && !(previous == '*' && c == '/')) {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    previous = c;
+                }
+                continue;
+            }
+            return c;
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != '\n') {
+            // Skip to end of line
+        }
+        if (c == '\n') {
+            line++;
+        }
+    }
+
+    private static boolean isIdChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '.' || c >= 128;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peekChar() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int n = reader.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    // Marker type so subgraph operands are not reported as plain node statements
+    private static final class SubgraphMembers extends ArrayList<String> {
+        private static final long serialVersionUID = 1L;
+    }
+
+    // Input stream that counts the bytes read through it, for progress reporting
+    static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    // Input stream over a file that maps it a window at a time, so files larger than 2GB can be read
+    static final class MappedInputStream extends InputStream {
+        private static final long WINDOW_SIZE = 1L << 26;
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInputStream(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            long start = window == null ? 0 : windowStart + window.capacity();
+            if (start >= size) {
+                return false;
+            }
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensureWindow() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureWindow()) {
+                return -1;
+            }
+            int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import guru.nidi.graphviz.attribute.Label;
+import guru.nidi.graphviz.model.Link;
+import guru.nidi.graphviz.model.MutableAttributed;
+import guru.nidi.graphviz.model.MutableNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+// Serializes a graph as DOT text straight to a Writer, one statement at a time, so exporting needs no memory
+// beyond the writer's buffer. Every ID is quoted (HTML labels keep their <...> form), which lets parseGraph read
+// the output back into the same nodes, edges and attributes.
+final class DotWriter {
+    private final Writer out;
+    private final String edgeOp;
+
+    private DotWriter(Writer out, boolean directed) {
+        this.out = out;
+        this.edgeOp = directed ? " -> " : " -- ";
+    }
+
+    // Write the Graphviz model: default attributes, then each node's statement (only if it carries attributes or
+    // would otherwise be lost as an isolated node) followed by its outgoing edges
+    static void write(Writer out, String name, boolean directed, boolean strict,
+                      MutableAttributed<?, ?> graphAttrs, MutableAttributed<?, ?> nodeAttrs,
+                      MutableAttributed<?, ?> linkAttrs, Collection<MutableNode> nodes,
+                      Map<String, Set<String>> incoming) throws IOException {
+        DotWriter writer = new DotWriter(out, directed);
+        writer.header(name, directed, strict);
+        for (Map.Entry<String, Object> attr : graphAttrs) {
+            out.write("    ");
+            writer.id(attr.getKey());
+            out.write('=');
+            writer.value(attr.getValue());
+            out.write(";\n");
+        }
+        writer.defaults("node", nodeAttrs);
+        writer.defaults("edge", linkAttrs);
+
+        for (MutableNode node : nodes) {
+            String source = node.name().toString();
+            boolean isolated = node.links().isEmpty() && incoming.getOrDefault(source, Collections.emptySet()).isEmpty();
+            if (isolated || node.attrs().iterator().hasNext()) {
+                out.write("    ");
+                writer.id(source);
+                writer.attrs(node.attrs());
+                out.write(";\n");
+            }
+            for (Link link : node.links()) {
+                out.write("    ");
+                writer.id(source);
+                out.write(writer.edgeOp);
+                writer.id(link.to().name().toString());
+                writer.attrs(link.attrs());
+                out.write(";\n");
+            }
+        }
+        out.write("}\n");
+    }
+
+    // Write a graph that only exists as a snapshot; the snapshot's non-default weights become "weight" attributes
+    static void write(Writer out, String name, boolean directed, boolean strict, GraphSnapshot snap)
+            throws IOException {
+        DotWriter writer = new DotWriter(out, directed);
+        writer.header(name, directed, strict);
+        int[] offsets = snap.offsets();
+        int[] targets = snap.targets();
+        boolean[] hasIncoming = new boolean[snap.nodeCount()];
+        for (int target : targets) {
+            hasIncoming[target] = true;
+        }
+        for (int node = 0; node < snap.nodeCount(); node++) {
+            if (offsets[node] == offsets[node + 1] && !hasIncoming[node]) {
+                out.write("    ");
+                writer.id(snap.nameOf(node));
+                out.write(";\n");
+            }
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                out.write("    ");
+                writer.id(snap.nameOf(node));
+                out.write(writer.edgeOp);
+                writer.id(snap.nameOf(targets[e]));
+                if (snap.weight(e) != 1.0) {
+                    out.write(" [\"weight\"=");
+                    writer.id(Double.toString(snap.weight(e)));
+                    out.write(']');
+                }
+                out.write(";\n");
+            }
+        }
+        out.write("}\n");
+    }
+
+    private void header(String name, boolean directed, boolean strict) throws IOException {
+        if (strict) {
+            out.write("strict ");
+        }
+        out.write(directed ? "digraph " : "graph ");
+        if (!name.isEmpty()) {
+            id(name);
+            out.write(' ');
+        }
+        out.write("{\n");
+    }
+
+    private void defaults(String target, MutableAttributed<?, ?> attrs) throws IOException {
+        if (attrs.iterator().hasNext()) {
+            out.write("    ");
+            out.write(target);
+            attrs(attrs);
+            out.write(";\n");
+        }
+    }
+
+    private void attrs(MutableAttributed<?, ?> attrs) throws IOException {
+        boolean first = true;
+        for (Map.Entry<String, Object> attr : attrs) {
+            out.write(first ? " [" : ", ");
+            first = false;
+            id(attr.getKey());
+            out.write('=');
+            value(attr.getValue());
+        }
+        if (!first) {
+            out.write(']');
+        }
+    }
+
+    private void value(Object value) throws IOException {
+        if (value instanceof Label && ((Label) value).isHtml()) {
+            out.write('<');
+            out.write(value.toString());
+            out.write('>');
+        } else {
+            id(value.toString());
+        }
+    }
+
+    // Quoted ID. The DOT lexer reads \" as a quote and backslash-newline as nothing, so quotes are escaped, and a
+    // backslash right before a quote or the closing quote is followed by an escaped newline to keep it literal
+    private void id(String text) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.write(text, start, i - start);
+                out.write("\\\"");
+                start = i + 1;
+            } else if (c == '\\' && (i + 1 == text.length() || text.charAt(i + 1) == '"')) {
+                out.write(text, start, i - start);
+                out.write("\\\\\n");
+                start = i + 1;
+            }
+        }
+        out.write(text, start, text.length() - start);
+        out.write('"');
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+
+// Pages through the edges of one graph snapshot, pageSize "source -> target" strings at a time, so a huge edge
+// list can be exported in chunks without holding it all in memory. Mutations made while paging are not seen:
+// every page comes from the graph as it was when the cursor was opened.
+public final class EdgeCursor implements Iterator<List<String>> {
+    private final Spliterator<String> edges;
+    private final int pageSize;
+    private List<String> next;
+    private long position;
+
+    EdgeCursor(GraphSnapshot snap, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        this.edges = snap.edgeSpliterator(0, snap.edgeCount());
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            List<String> page = new ArrayList<>(pageSize);
+            while (page.size() < pageSize && edges.tryAdvance(page::add)) {
+                // Keep filling the page
+            }
+            if (!page.isEmpty()) {
+                next = page;
+            }
+        }
+        return next != null;
+    }
+
+    // The next page: pageSize edges, or fewer on the last page
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> page = next;
+        next = null;
+        position += page.size();
+        return page;
+    }
+
+    // Number of edges handed out so far
+    public long getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,167 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+// Standard listener that keeps counters and histograms for a parser and publishes them over JMX
+// (see DotGraphParser.enableMetrics). Node and edge counts are read from the parser on demand.
+public final class GraphMetrics implements GraphMetricsListener, GraphMetricsMBean {
+    private final IntSupplier nodeCount;
+    private final LongSupplier edgeCount;
+    private volatile Histogram parse = new Histogram();
+    private volatile Histogram mutations = new Histogram();
+    private volatile Map<Mutation, LongAdder> mutationsByType = newMutationCounters();
+    private volatile Histogram searches = new Histogram();
+    private volatile Histogram visitedNodes = new Histogram();
+    private volatile LongAdder cachedSearches = new LongAdder();
+    private volatile Histogram exports = new Histogram();
+
+    GraphMetrics(IntSupplier nodeCount, LongSupplier edgeCount) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+    }
+
+    private static Map<Mutation, LongAdder> newMutationCounters() {
+        Map<Mutation, LongAdder> counters = new EnumMap<>(Mutation.class);
+        for (Mutation mutation : Mutation.values()) {
+            counters.put(mutation, new LongAdder());
+        }
+        return counters;
+    }
+
+    @Override
+    public void onParse(long elapsedNanos, int nodes, long edges) {
+        parse.record(elapsedNanos);
+    }
+
+    @Override
+    public void onMutation(Mutation mutation, long elapsedNanos) {
+        mutations.record(elapsedNanos);
+        mutationsByType.get(mutation).increment();
+    }
+
+    @Override
+    public void onSearch(Algorithm algorithm, long elapsedNanos, int visited, boolean found, boolean cached) {
+        searches.record(elapsedNanos);
+        if (cached) {
+            cachedSearches.increment();
+        } else {
+            visitedNodes.record(visited);
+        }
+    }
+
+    @Override
+    public void onExport(String format, long elapsedNanos) {
+        exports.record(elapsedNanos);
+    }
+
+    // Histograms in nanoseconds, for callers that want more than the MBean summary
+    public Histogram getParseHistogram() {
+        return parse;
+    }
+
+    public Histogram getMutationHistogram() {
+        return mutations;
+    }
+
+    public Histogram getSearchHistogram() {
+        return searches;
+    }
+
+    public Histogram getVisitedNodesHistogram() {
+        return visitedNodes;
+    }
+
+    public Histogram getExportHistogram() {
+        return exports;
+    }
+
+    public long getMutationCount(Mutation mutation) {
+        return mutationsByType.get(mutation).sum();
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeCount.getAsInt();
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return edgeCount.getAsLong();
+    }
+
+    @Override
+    public long getParseCount() {
+        return parse.getCount();
+    }
+
+    @Override
+    public double getMeanParseMicros() {
+        return parse.getMean() / 1_000;
+    }
+
+    @Override
+    public long getMutationCount() {
+        return mutations.getCount();
+    }
+
+    @Override
+    public double getMeanMutationMicros() {
+        return mutations.getMean() / 1_000;
+    }
+
+    @Override
+    public long getSearchCount() {
+        return searches.getCount();
+    }
+
+    @Override
+    public long getCachedSearchCount() {
+        return cachedSearches.sum();
+    }
+
+    @Override
+    public long getSearchP50Micros() {
+        return searches.getPercentile(0.5) / 1_000;
+    }
+
+    @Override
+    public long getSearchP99Micros() {
+        return searches.getPercentile(0.99) / 1_000;
+    }
+
+    @Override
+    public double getMeanVisitedNodes() {
+        return visitedNodes.getMean();
+    }
+
+    @Override
+    public long getExportCount() {
+        return exports.getCount();
+    }
+
+    @Override
+    public double getMeanExportMicros() {
+        return exports.getMean() / 1_000;
+    }
+
+    // Start every counter and histogram afresh; events racing with the reset may land in either set
+    @Override
+    public void reset() {
+        parse = new Histogram();
+        mutations = new Histogram();
+        mutationsByType = newMutationCounters();
+        searches = new Histogram();
+        visitedNodes = new Histogram();
+        cachedSearches = new LongAdder();
+        exports = new Histogram();
+    }
+
+    @Override
+    public String toString() {
+        return "GraphMetrics[nodes=" + getNodeCount() + ", edges=" + getEdgeCount() + ", parse{" + parse
+                + "}, mutations{" + mutations + "}, searches{" + searches + "}, visited{" + visitedNodes
+                + "}, exports{" + exports + "}]";
+    }
+}
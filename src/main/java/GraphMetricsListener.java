@@ -0,0 +1,25 @@
+// Receives timings and sizes from a DotGraphParser. Callbacks run on the thread that did the work, so
+// implementations must be cheap and thread-safe. Every method defaults to doing nothing.
+public interface GraphMetricsListener {
+    GraphMetricsListener NONE = new GraphMetricsListener() {
+    };
+
+    enum Mutation {
+        ADD_NODE, ADD_EDGE, REMOVE_NODE, REMOVE_NODES, REMOVE_EDGE
+    }
+
+    // A whole graph was parsed or loaded
+    default void onParse(long elapsedNanos, int nodeCount, long edgeCount) {
+    }
+
+    default void onMutation(Mutation mutation, long elapsedNanos) {
+    }
+
+    // visitedNodes is 0 when the result came from the search cache
+    default void onSearch(Algorithm algorithm, long elapsedNanos, int visitedNodes, boolean found, boolean cached) {
+    }
+
+    // format is the file format written: dot, snapshot, or a graphics format
+    default void onExport(String format, long elapsedNanos) {
+    }
+}
@@ -0,0 +1,30 @@
+// JMX view of GraphMetrics; latencies are in microseconds
+public interface GraphMetricsMBean {
+    int getNodeCount();
+
+    long getEdgeCount();
+
+    long getParseCount();
+
+    double getMeanParseMicros();
+
+    long getMutationCount();
+
+    double getMeanMutationMicros();
+
+    long getSearchCount();
+
+    long getCachedSearchCount();
+
+    long getSearchP50Micros();
+
+    long getSearchP99Micros();
+
+    double getMeanVisitedNodes();
+
+    long getExportCount();
+
+    double getMeanExportMicros();
+
+    void reset();
+}
@@ -0,0 +1,182 @@
+import guru.nidi.graphviz.engine.Format;
+import guru.nidi.graphviz.engine.Graphviz;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+// Bounded pool of rendering workers. The Graphviz JavaScript engine is created per thread and takes over a second
+// to start, so each worker renders a tiny graph before taking jobs and then keeps its engine for its lifetime.
+// At most workers + queueCapacity renders are accepted at once; further submissions block until one finishes.
+public final class GraphRenderer implements AutoCloseable {
+    private static final String WARM_UP_GRAPH = "digraph { a -> b }";
+
+    private final ExecutorService workers;
+    private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private final Semaphore capacity;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong totalRenderNanos = new AtomicLong();
+    private final LongAccumulator maxRenderNanos = new LongAccumulator(Math::max, 0);
+
+    public GraphRenderer(int workerCount, int queueCapacity) {
+        if (workerCount < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Renderer needs at least one worker and a non-negative queue capacity.");
+        }
+        this.capacity = new Semaphore(workerCount + queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(() -> {
+                warmUp();
+                task.run();
+            }, "graph-renderer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                queue, factory);
+        executor.prestartAllCoreThreads();
+        this.workers = executor;
+    }
+
+    private static void warmUp() {
+        try {
+            Graphviz.fromString(WARM_UP_GRAPH).render(Format.SVG).toString();
+        } catch (RuntimeException e) {
+            // No engine available; real renders will report the error
+        }
+    }
+
+    // Format names accepted by render; "dot" is written without an engine
+    static boolean isSupported(String format) {
+        return format.equalsIgnoreCase("dot") || toGraphvizFormat(format) != null;
+    }
+
+    private static Format toGraphvizFormat(String format) {
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "png":
+                return Format.PNG;
+            case "svg":
+                return Format.SVG;
+            case "ps":
+                return Format.PS;
+            case "json":
+                return Format.JSON;
+            case "plain":
+                return Format.PLAIN;
+            default:
+                return null;
+        }
+    }
+
+    // Queue a render of DOT text into target; blocks while the renderer is at capacity
+    CompletableFuture<File> render(String dot, String format, java.nio.file.Path target) {
+        CompletableFuture<File> result = new CompletableFuture<>();
+        if (!isSupported(format)) {
+            result.completeExceptionally(new IllegalArgumentException("Unsupported format: " + format));
+            return result;
+        }
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        long queuedAt = System.nanoTime();
+        try {
+            workers.execute(() -> {
+                long start = System.nanoTime();
+                totalQueueNanos.addAndGet(start - queuedAt);
+                started.incrementAndGet();
+                active.incrementAndGet();
+                try {
+                    Format graphvizFormat = toGraphvizFormat(format);
+                    if (graphvizFormat == null) {
+                        Files.write(target, dot.getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        Graphviz.fromString(dot).render(graphvizFormat).toFile(target.toFile());
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    totalRenderNanos.addAndGet(elapsed);
+                    maxRenderNanos.accumulate(elapsed);
+                    completed.incrementAndGet();
+                    result.complete(target.toFile());
+                } catch (IOException | RuntimeException e) {
+                    failed.incrementAndGet();
+                    result.completeExceptionally(e);
+                } finally {
+                    active.decrementAndGet();
+                    capacity.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Rejected because the renderer was closed
+            capacity.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // Renders waiting for a worker
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getActiveRenders() {
+        return active.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    // Mean time from submission until a worker picked the render up, in milliseconds
+    public double getMeanQueueMillis() {
+        long count = started.get();
+        return count == 0 ? 0 : totalQueueNanos.get() / 1e6 / count;
+    }
+
+    // Mean and worst time spent rendering successful jobs, in milliseconds
+    public double getMeanRenderMillis() {
+        long done = completed.get();
+        return done == 0 ? 0 : totalRenderNanos.get() / 1e6 / done;
+    }
+
+    public double getMaxRenderMillis() {
+        return maxRenderNanos.get() / 1e6;
+    }
+
+    // Stop accepting renders; queued ones still finish
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "GraphRenderer[queued=%d, active=%d, completed=%d, failed=%d, "
+                        + "meanQueueMs=%.1f, meanRenderMs=%.1f, maxRenderMs=%.1f]", getQueueDepth(), getActiveRenders(),
+                getCompletedCount(), getFailedCount(), getMeanQueueMillis(), getMeanRenderMillis(), getMaxRenderMillis());
+    }
+}
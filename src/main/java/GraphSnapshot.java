@@ -0,0 +1,643 @@
+import guru.nidi.graphviz.model.Link;
+import guru.nidi.graphviz.model.MutableNode;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleBiFunction;
+
+// Frozen compressed-sparse-row view of a graph: node i's successors are targets[offsets[i] .. offsets[i + 1]).
+// Edges are stored only as id pairs; labels live in a NodeDictionary and are looked up when needed.
+final class GraphSnapshot {
+    private final NodeDictionary dictionary;
+    private final int[] offsets;
+    private final int[] targets;
+    // Edge weights parallel to targets, read from the "weight" or "len" attribute (1.0 when absent)
+    private final double[] weights;
+    private final boolean hasNegativeWeight;
+    // Reverse CSR (predecessors), built on first use
+    private int[] inOffsets;
+    private int[] sources;
+    // Modification count of the graph this snapshot was taken from
+    private final long version;
+    // Derived structures, built on first use; a snapshot never changes, so they never go stale
+    private StronglyConnectedComponents components;
+    private ReachabilityIndex reachability;
+    // Edges that repeat an earlier edge between the same two nodes (null if there are none)
+    private BitSet repeatedEdges;
+    private boolean repeatedEdgesKnown;
+
+    private GraphSnapshot(NodeDictionary dictionary, int[] offsets, int[] targets, double[] weights, long version) {
+        this.version = version;
+        this.dictionary = dictionary;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        boolean negative = false;
+        for (double weight : weights) {
+            negative |= weight < 0;
+        }
+        this.hasNegativeWeight = negative;
+    }
+
+    // Build a snapshot from the parser's name index, keeping the labels off-heap if asked to
+    static GraphSnapshot of(Map<String, MutableNode> nodeIndex, long version, boolean offHeapNames) {
+        int nodeCount = nodeIndex.size();
+        NodeDictionary dictionary = new NodeDictionary(nodeCount, offHeapNames);
+
+        int edgeCount = 0;
+        for (Map.Entry<String, MutableNode> entry : nodeIndex.entrySet()) {
+            dictionary.add(entry.getKey());
+            edgeCount += entry.getValue().links().size();
+        }
+
+        int[] offsets = new int[nodeCount + 1];
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        int edge = 0;
+        int id = 0;
+        for (MutableNode node : nodeIndex.values()) {
+            offsets[id++] = edge;
+            for (Link link : node.links()) {
+                int target = dictionary.idOf(link.to().name().toString());
+                if (target >= 0) {
+                    weights[edge] = weightOf(link);
+                    targets[edge++] = target;
+                }
+            }
+        }
+        offsets[nodeCount] = edge;
+
+        return new GraphSnapshot(dictionary, offsets, targets, weights, version);
+    }
+
+    // Build a snapshot from CSR arrays decoded elsewhere (e.g. a snapshot file); the arrays are used as-is
+    static GraphSnapshot of(NodeDictionary dictionary, int[] offsets, int[] targets, double[] weights, long version) {
+        return new GraphSnapshot(dictionary, offsets, targets, weights, version);
+    }
+
+    private static double weightOf(Link link) {
+        Object value = link.attrs().get("weight");
+        if (value == null) {
+            value = link.attrs().get("len");
+        }
+        if (value == null) {
+            return 1.0;
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return 1.0;
+        }
+    }
+
+    long version() {
+        return version;
+    }
+
+    NodeDictionary dictionary() {
+        return dictionary;
+    }
+
+    // Number of edges, counting parallel edges between the same two nodes once
+    int distinctEdgeCount() {
+        BitSet repeated = repeatedEdges();
+        return edgeCount() - (repeated == null ? 0 : repeated.cardinality());
+    }
+
+    // Labels of the nodes with ids in [from, to); splits in half by id range for parallel streams
+    Spliterator<String> nodeSpliterator(int from, int to) {
+        return new Spliterator<String>() {
+            private int next = from;
+            private int end = to;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super String> action) {
+                if (next >= end) {
+                    return false;
+                }
+                action.accept(nameOf(next++));
+                return true;
+            }
+
+            @Override
+            public Spliterator<String> trySplit() {
+                int mid = (next + end) >>> 1;
+                if (end - next < 2) {
+                    return null;
+                }
+                Spliterator<String> prefix = nodeSpliterator(next, mid);
+                next = mid;
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize() {
+                return end - next;
+            }
+
+            @Override
+            public int characteristics() {
+                return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+            }
+        };
+    }
+
+    // Edges with indices in [from, to) as "source -> target" strings, skipping repeated parallel edges; splits in
+    // half by edge range. Sizes are exact only when the graph has no parallel edges.
+    Spliterator<String> edgeSpliterator(int from, int to) {
+        BitSet repeated = repeatedEdges();
+        return new Spliterator<String>() {
+            private int next = from;
+            private int end = to;
+            // Source of edge next, found by binary search on first use
+            private int node = -1;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super String> action) {
+                if (repeated != null) {
+                    next = Math.min(repeated.nextClearBit(next), end);
+                }
+                if (next >= end) {
+                    return false;
+                }
+                if (node < 0) {
+                    node = sourceOf(next);
+                }
+                while (offsets[node + 1] <= next) {
+                    node++;
+                }
+                action.accept(nameOf(node) + " -> " + nameOf(targets[next++]));
+                return true;
+            }
+
+            @Override
+            public Spliterator<String> trySplit() {
+                int mid = (next + end) >>> 1;
+                if (end - next < 2) {
+                    return null;
+                }
+                Spliterator<String> prefix = edgeSpliterator(next, mid);
+                next = mid;
+                node = -1;
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize() {
+                return end - next;
+            }
+
+            @Override
+            public int characteristics() {
+                int exact = repeated == null ? SIZED | SUBSIZED : 0;
+                return ORDERED | DISTINCT | NONNULL | IMMUTABLE | exact;
+            }
+        };
+    }
+
+    // Node whose out-edges include edge index e
+    int sourceOf(int edge) {
+        int lo = 0;
+        int hi = nodeCount() - 1;
+        // Last node whose first edge is at or before edge
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= edge) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    // Whether there is an edge from source to target (false if either is -1)
+    boolean hasEdge(int source, int target) {
+        if (source < 0 || target < 0) {
+            return false;
+        }
+        for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+            if (targets[e] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Marks every edge whose source and target match an earlier edge, found in one pass with a last-seen array
+    synchronized BitSet repeatedEdges() {
+        if (!repeatedEdgesKnown) {
+            int n = nodeCount();
+            int[] lastSeen = new int[n];
+            Arrays.fill(lastSeen, -1);
+            BitSet repeated = new BitSet();
+            for (int node = 0; node < n; node++) {
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    if (lastSeen[targets[e]] == node) {
+                        repeated.set(e);
+                    }
+                    lastSeen[targets[e]] = node;
+                }
+            }
+            repeatedEdges = repeated.isEmpty() ? null : repeated;
+            repeatedEdgesKnown = true;
+        }
+        return repeatedEdges;
+    }
+
+    synchronized StronglyConnectedComponents components() {
+        if (components == null) {
+            components = StronglyConnectedComponents.of(this);
+        }
+        return components;
+    }
+
+    synchronized ReachabilityIndex reachability() {
+        if (reachability == null) {
+            reachability = ReachabilityIndex.of(this);
+        }
+        return reachability;
+    }
+
+    int nodeCount() {
+        return offsets.length - 1;
+    }
+
+    int edgeCount() {
+        return offsets[offsets.length - 1];
+    }
+
+    // Raw CSR arrays for traversal helpers in this package; callers must not modify them
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    int[] inOffsets() {
+        buildReverse();
+        return inOffsets;
+    }
+
+    int[] sources() {
+        buildReverse();
+        return sources;
+    }
+
+    // Returns the node id for a label, or -1 if the node is not in the snapshot
+    int idOf(String label) {
+        return dictionary.idOf(label);
+    }
+
+    String nameOf(int id) {
+        return dictionary.nameOf(id);
+    }
+
+    double weight(int edge) {
+        return weights[edge];
+    }
+
+    // Parent pointers from a single-source traversal; only nodes marked in reached have a valid parent
+    static final class SearchTree {
+        final int source;
+        final int[] parent;
+        final BitSet reached;
+
+        SearchTree(int source, int[] parent, BitSet reached) {
+            this.source = source;
+            this.parent = parent;
+            this.reached = reached;
+        }
+    }
+
+    // Outcome of a point-to-point search: the node ids on the path (null if unreachable) and how many nodes the
+    // search visited to find it
+    static final class SearchResult {
+        final int[] path;
+        final int visited;
+
+        SearchResult(int[] path, int visited) {
+            this.path = path;
+            this.visited = visited;
+        }
+    }
+
+    private static SearchResult resultOf(SearchTree tree, int destination) {
+        return new SearchResult(pathTo(tree, destination), tree.reached.cardinality());
+    }
+
+    // Returns the node ids from the tree's source to destination, or null if the traversal never reached it
+    static int[] pathTo(SearchTree tree, int destination) {
+        return tree.reached.get(destination) ? reconstructPath(tree.source, destination, tree.parent) : null;
+    }
+
+    private BitSet single(int node) {
+        BitSet wanted = new BitSet(nodeCount());
+        wanted.set(node);
+        return wanted;
+    }
+
+    // Breadth-first search for a shortest path
+    SearchResult bfs(int source, int destination) {
+        return resultOf(bfsTree(source, single(destination), 1), destination);
+    }
+
+    // Depth-first search for the first path found
+    SearchResult dfs(int source, int destination) {
+        return resultOf(dfsTree(source, single(destination), 1), destination);
+    }
+
+    // BFS from source that stops as soon as wantedCount of the wanted nodes have been discovered
+    SearchTree bfsTree(int source, BitSet wanted, int wantedCount) {
+        int[] parent = new int[nodeCount()];
+        int[] queue = new int[nodeCount()];
+        BitSet visited = new BitSet(nodeCount());
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = source;
+        visited.set(source);
+        int remaining = wantedCount - (wanted.get(source) ? 1 : 0);
+
+        while (head < tail && remaining > 0) {
+            int current = queue[head++];
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int neighbor = targets[e];
+                if (!visited.get(neighbor)) {
+                    visited.set(neighbor);
+                    parent[neighbor] = current;
+                    if (wanted.get(neighbor) && --remaining == 0) {
+                        break;
+                    }
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return new SearchTree(source, parent, visited);
+    }
+
+    // DFS from source that stops as soon as wantedCount of the wanted nodes have been discovered
+    SearchTree dfsTree(int source, BitSet wanted, int wantedCount) {
+        // Nodes are marked visited when pushed, so the stack never holds more than one entry per node;
+        // a node's parent is fixed when it is pushed, so stopping at discovery gives the same path as stopping at pop
+        int[] parent = new int[nodeCount()];
+        int[] stack = new int[nodeCount()];
+        BitSet visited = new BitSet(nodeCount());
+        int top = 0;
+
+        stack[top++] = source;
+        visited.set(source);
+        int remaining = wantedCount - (wanted.get(source) ? 1 : 0);
+
+        while (top > 0 && remaining > 0) {
+            int current = stack[--top];
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int neighbor = targets[e];
+                if (!visited.get(neighbor)) {
+                    visited.set(neighbor);
+                    parent[neighbor] = current;
+                    stack[top++] = neighbor;
+                    if (wanted.get(neighbor)) {
+                        remaining--;
+                    }
+                }
+            }
+        }
+        return new SearchTree(source, parent, visited);
+    }
+
+    // Bidirectional BFS: expands whichever frontier is smaller one full level at a time and stops after the
+    // level in which the two searches first meet, keeping the shortest meeting seen in that level
+    SearchResult bidirectionalBfs(int source, int destination) {
+        if (source == destination) {
+            return new SearchResult(new int[]{source}, 1);
+        }
+        buildReverse();
+
+        int n = nodeCount();
+        int[] forwardParent = new int[n];
+        int[] backwardParent = new int[n];
+        int[] forwardDistance = new int[n];
+        int[] backwardDistance = new int[n];
+        BitSet forwardVisited = new BitSet(n);
+        BitSet backwardVisited = new BitSet(n);
+        int[] forwardQueue = new int[n];
+        int[] backwardQueue = new int[n];
+        int forwardHead = 0;
+        int forwardTail = 0;
+        int backwardHead = 0;
+        int backwardTail = 0;
+
+        forwardQueue[forwardTail++] = source;
+        forwardVisited.set(source);
+        backwardQueue[backwardTail++] = destination;
+        backwardVisited.set(destination);
+
+        int best = Integer.MAX_VALUE;
+        int meetFrom = -1;
+        int meetTo = -1;
+        while (forwardHead < forwardTail && backwardHead < backwardTail) {
+            boolean forward = forwardTail - forwardHead <= backwardTail - backwardHead;
+            int levelEnd = forward ? forwardTail : backwardTail;
+
+            if (forward) {
+                while (forwardHead < levelEnd) {
+                    int current = forwardQueue[forwardHead++];
+                    for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                        int neighbor = targets[e];
+                        if (backwardVisited.get(neighbor)) {
+                            int length = forwardDistance[current] + 1 + backwardDistance[neighbor];
+                            if (length < best) {
+                                best = length;
+                                meetFrom = current;
+                                meetTo = neighbor;
+                            }
+                        }
+                        if (!forwardVisited.get(neighbor)) {
+                            forwardVisited.set(neighbor);
+                            forwardParent[neighbor] = current;
+                            forwardDistance[neighbor] = forwardDistance[current] + 1;
+                            forwardQueue[forwardTail++] = neighbor;
+                        }
+                    }
+                }
+            } else {
+                while (backwardHead < levelEnd) {
+                    int current = backwardQueue[backwardHead++];
+                    for (int e = inOffsets[current]; e < inOffsets[current + 1]; e++) {
+                        int neighbor = sources[e];
+                        if (forwardVisited.get(neighbor)) {
+                            int length = forwardDistance[neighbor] + 1 + backwardDistance[current];
+                            if (length < best) {
+                                best = length;
+                                meetFrom = neighbor;
+                                meetTo = current;
+                            }
+                        }
+                        if (!backwardVisited.get(neighbor)) {
+                            backwardVisited.set(neighbor);
+                            backwardParent[neighbor] = current;
+                            backwardDistance[neighbor] = backwardDistance[current] + 1;
+                            backwardQueue[backwardTail++] = neighbor;
+                        }
+                    }
+                }
+            }
+
+            if (meetFrom >= 0) {
+                break;
+            }
+        }
+        int visited = forwardVisited.cardinality() + backwardVisited.cardinality();
+        if (meetFrom < 0) {
+            return new SearchResult(null, visited); // No path found
+        }
+
+        // Source .. meetFrom comes from the forward tree, meetTo .. destination from the backward tree
+        int[] head = reconstructPath(source, meetFrom, forwardParent);
+        int[] path = new int[best + 1];
+        System.arraycopy(head, 0, path, 0, head.length);
+        int i = head.length;
+        for (int current = meetTo; ; current = backwardParent[current]) {
+            path[i++] = current;
+            if (current == destination) {
+                break;
+            }
+        }
+        return new SearchResult(path, visited);
+    }
+
+    // Dijkstra's algorithm over the edge weights
+    SearchResult dijkstra(int source, int destination) {
+        return aStar(source, destination, null);
+    }
+
+    // A* over the edge weights, guided by an admissible heuristic estimate(node, destination); null means zero.
+    // The heuristic need not be consistent: a settled node is reopened when a cheaper route to it turns up.
+    SearchResult aStar(int source, int destination, ToDoubleBiFunction<String, String> heuristic) {
+        return resultOf(weightedTree(source, single(destination), 1, heuristic, nameOf(destination), null, null),
+                destination);
+    }
+
+    // Cheapest path that avoids the banned nodes and edges (either may be null), or null if there is none; the
+    // spur searches of Yen's algorithm
+    int[] dijkstraAvoiding(int source, int destination, BitSet bannedNodes, BitSet bannedEdges) {
+        SearchTree tree = weightedTree(source, single(destination), 1, null, null, bannedNodes, bannedEdges);
+        return tree.reached.get(destination) ? reconstructPath(source, destination, tree.parent) : null;
+    }
+
+    // Dijkstra from source that stops once wantedCount of the wanted nodes have been settled
+    SearchTree dijkstraTree(int source, BitSet wanted, int wantedCount) {
+        return weightedTree(source, wanted, wantedCount, null, null, null, null);
+    }
+
+    // Only settled nodes are reported as reached, since a reached-but-unsettled node's parent can still change
+    private SearchTree weightedTree(int source, BitSet wanted, int wantedCount,
+                                    ToDoubleBiFunction<String, String> heuristic, String target,
+                                    BitSet bannedNodes, BitSet bannedEdges) {
+        if (hasNegativeWeight) {
+            throw new IllegalArgumentException("Weighted search requires non-negative edge weights.");
+        }
+
+        int n = nodeCount();
+        int[] parent = new int[n];
+        double[] distance = new double[n];
+        BitSet reached = new BitSet(n);
+        BitSet settled = new BitSet(n);
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        int remaining = wantedCount;
+
+        distance[source] = 0;
+        reached.set(source);
+        heap.offer(source, 0);
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            settled.set(current);
+            if (wanted.get(current) && --remaining == 0) {
+                break;
+            }
+
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int neighbor = targets[e];
+                // Without a heuristic a settled node's distance is final; with one it may still drop
+                if ((heuristic == null && settled.get(neighbor)) || (bannedEdges != null && bannedEdges.get(e))
+                        || (bannedNodes != null && bannedNodes.get(neighbor))) {
+                    continue;
+                }
+                double candidate = distance[current] + weights[e];
+                if (!reached.get(neighbor) || candidate < distance[neighbor]) {
+                    reached.set(neighbor);
+                    distance[neighbor] = candidate;
+                    parent[neighbor] = current;
+                    double estimate = heuristic == null ? 0 : heuristic.applyAsDouble(nameOf(neighbor), target);
+                    heap.offer(neighbor, candidate + estimate);
+                }
+            }
+        }
+        return new SearchTree(source, parent, settled);
+    }
+
+    // Total weight along a path; for parallel edges the cheapest one counts
+    double pathCost(int[] path) {
+        double cost = 0;
+        for (int i = 0; i + 1 < path.length; i++) {
+            double cheapest = Double.POSITIVE_INFINITY;
+            for (int e = offsets[path[i]]; e < offsets[path[i] + 1]; e++) {
+                if (targets[e] == path[i + 1]) {
+                    cheapest = Math.min(cheapest, weights[e]);
+                }
+            }
+            cost += cheapest;
+        }
+        return cost;
+    }
+
+    // Build the predecessor lists by counting in-degrees and scattering edges, O(V + E)
+    private synchronized void buildReverse() {
+        if (sources != null) {
+            return;
+        }
+        int n = nodeCount();
+        int[] in = new int[n + 1];
+        for (int e = 0; e < offsets[n]; e++) {
+            in[targets[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            in[i + 1] += in[i];
+        }
+        int[] fill = new int[n];
+        int[] from = new int[offsets[n]];
+        for (int node = 0; node < n; node++) {
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int target = targets[e];
+                from[in[target] + fill[target]++] = node;
+            }
+        }
+        inOffsets = in;
+        sources = from;
+    }
+
+    // Walk the parent array back from the destination and return the ids in source-to-destination order
+    static int[] reconstructPath(int source, int destination, int[] parent) {
+        int length = 1;
+        for (int current = destination; current != source; current = parent[current]) {
+            length++;
+        }
+
+        int[] path = new int[length];
+        int current = destination;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = current;
+            if (i > 0) {
+                current = parent[current];
+            }
+        }
+        return path;
+    }
+}
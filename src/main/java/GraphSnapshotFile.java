@@ -0,0 +1,218 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Compact binary form of a GraphSnapshot, so a large graph can be reloaded without re-parsing DOT text.
+//
+// Layout (all integers are unsigned LEB128 varints unless noted):
+//   magic "DOTG" (4 bytes), format version, flags (bit 0 directed, bit 1 strict, bit 2 weights present),
+//   graph name, node count, edge count,
+//   string table: node count names, each a varint byte length followed by UTF-8 bytes,
+//   adjacency: for each node its out-degree, then its targets as zigzag deltas from the previous target,
+//   weights (only if flagged): one big-endian double per edge, in adjacency order.
+// Only the "weight"/"len" value of each edge survives a round trip; other attributes are not stored.
+final class GraphSnapshotFile {
+    static final int FORMAT_VERSION = 1;
+    private static final byte[] MAGIC = {'D', 'O', 'T', 'G'};
+    private static final int DIRECTED = 1;
+    private static final int STRICT = 2;
+    private static final int WEIGHTED = 4;
+
+    // What a loaded file describes besides the snapshot itself
+    static final class Header {
+        final String graphName;
+        final boolean directed;
+        final boolean strict;
+
+        Header(String graphName, boolean directed, boolean strict) {
+            this.graphName = graphName;
+            this.directed = directed;
+            this.strict = strict;
+        }
+    }
+
+    // A snapshot read back from disk together with its header
+    static final class Loaded {
+        final Header header;
+        final GraphSnapshot snapshot;
+
+        Loaded(Header header, GraphSnapshot snapshot) {
+            this.header = header;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private GraphSnapshotFile() {
+    }
+
+    static void write(java.nio.file.Path file, GraphSnapshot snap, Header header) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            int nodeCount = snap.nodeCount();
+            int[] offsets = snap.offsets();
+            int[] targets = snap.targets();
+            boolean weighted = false;
+            for (int e = 0; e < targets.length && !weighted; e++) {
+                weighted = snap.weight(e) != 1.0;
+            }
+
+            out.write(MAGIC);
+            writeVarint(out, FORMAT_VERSION);
+            writeVarint(out, (header.directed ? DIRECTED : 0) | (header.strict ? STRICT : 0) | (weighted ? WEIGHTED : 0));
+            writeString(out, header.graphName);
+            writeVarint(out, nodeCount);
+            writeVarint(out, snap.edgeCount());
+
+            for (int node = 0; node < nodeCount; node++) {
+                writeString(out, snap.nameOf(node));
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                writeVarint(out, offsets[node + 1] - offsets[node]);
+                int previous = 0;
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    int delta = targets[e] - previous;
+                    writeVarint(out, (delta << 1) ^ (delta >> 31));
+                    previous = targets[e];
+                }
+            }
+            if (weighted) {
+                for (int e = 0; e < targets.length; e++) {
+                    out.writeDouble(snap.weight(e));
+                }
+            }
+        }
+    }
+
+    // Reads a snapshot file into flat arrays; the only objects created are the node names, and with offHeapNames
+    // not even those, since the UTF-8 bytes are copied straight into the dictionary's buffer.
+    // The file is memory-mapped in windows rather than copied through a heap buffer.
+    static Loaded read(java.nio.file.Path file, long version, boolean offHeapNames) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(new DotStreamParser.MappedInputStream(channel), 1 << 16))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IOException("Not a graph snapshot file: " + file);
+                }
+            }
+            int formatVersion = readVarint(in);
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + formatVersion + " in " + file);
+            }
+            int flags = readVarint(in);
+            long fileSize = channel.size();
+            String graphName = readString(in, fileSize);
+            int nodeCount = readVarint(in);
+            int edgeCount = readVarint(in);
+            // Every node takes at least a name length and a degree byte, and every edge at least one target byte
+            // (plus a weight), so counts the file cannot hold are rejected before anything is sized from them
+            long edgeBytes = (flags & WEIGHTED) != 0 ? 1 + Double.BYTES : 1;
+            if (nodeCount < 0 || edgeCount < 0 || 2L * nodeCount + edgeBytes * edgeCount > fileSize) {
+                throw new IOException("Corrupt snapshot: " + nodeCount + " nodes and " + edgeCount
+                        + " edges cannot fit in " + file);
+            }
+
+            NodeDictionary dictionary = new NodeDictionary(nodeCount, offHeapNames);
+            byte[] label = new byte[64];
+            for (int node = 0; node < nodeCount; node++) {
+                int length = readVarint(in);
+                if (length < 0 || length > fileSize) {
+                    throw new IOException("Corrupt snapshot: bad node name length in " + file);
+                }
+                if (length > label.length) {
+                    label = new byte[Math.max(length, label.length * 2)];
+                }
+                in.readFully(label, 0, length);
+                if (dictionary.addUtf8(label, length) != node) {
+                    throw new IOException("Corrupt snapshot: duplicate node name in " + file);
+                }
+            }
+            int[] offsets = new int[nodeCount + 1];
+            int[] targets = new int[edgeCount];
+            int edge = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                offsets[node] = edge;
+                int degree = readVarint(in);
+                if (degree < 0 || degree > edgeCount - edge) {
+                    throw new IOException("Corrupt snapshot: more edges than the header declares in " + file);
+                }
+                int previous = 0;
+                for (int i = 0; i < degree; i++) {
+                    int zigzag = readVarint(in);
+                    int target = previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+                    if (target < 0 || target >= nodeCount) {
+                        throw new IOException("Corrupt snapshot: edge target out of range in " + file);
+                    }
+                    targets[edge++] = target;
+                    previous = target;
+                }
+            }
+            offsets[nodeCount] = edge;
+            if (edge != edgeCount) {
+                throw new IOException("Corrupt snapshot: expected " + edgeCount + " edges, found " + edge + " in " + file);
+            }
+
+            double[] weights = new double[edgeCount];
+            if ((flags & WEIGHTED) != 0) {
+                for (int e = 0; e < edgeCount; e++) {
+                    weights[e] = in.readDouble();
+                }
+            } else {
+                Arrays.fill(weights, 1.0);
+            }
+
+            Header header = new Header(graphName, (flags & DIRECTED) != 0, (flags & STRICT) != 0);
+            return new Loaded(header, GraphSnapshot.of(dictionary, offsets, targets, weights, version));
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated snapshot file");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in snapshot file");
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long maxLength) throws IOException {
+        int length = readVarint(in);
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Corrupt snapshot: bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
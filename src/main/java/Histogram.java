@@ -0,0 +1,57 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free histogram of non-negative values (latencies in nanoseconds, visited-node counts) with power-of-two
+// buckets: bucket b holds values in [2^(b-1), 2^b). Percentiles are reported as the upper bound of their bucket,
+// so they are accurate to within a factor of two.
+public final class Histogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(clamped));
+        count.increment();
+        sum.add(clamped);
+        max.accumulate(clamped);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // Upper bound of the bucket holding the given quantile (0 < quantile <= 1)
+    public long getPercentile(double quantile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int b = 0; b < 64; b++) {
+            seen += buckets.get(b);
+            if (seen >= rank) {
+                return b == 0 ? 0 : Math.min((1L << b) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + (long) getMean() + ", p50=" + getPercentile(0.5) + ", p99="
+                + getPercentile(0.99) + ", max=" + getMax();
+    }
+}
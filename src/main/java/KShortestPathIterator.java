@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Loopless paths from source to destination in order of increasing cost (Yen's algorithm). Each path after the
+// first is the cheapest candidate from deviating the previous one at each of its nodes: the root up to that node
+// is kept, its nodes are banned, and so is every edge an already-found path with the same root takes next.
+final class KShortestPathIterator extends PathIterator {
+    private final GraphSnapshot snap;
+    private final int source;
+    private final int destination;
+    private final List<int[]> found = new ArrayList<>();
+    private final PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+    private final Set<List<Integer>> queued = new HashSet<>();
+    private long sequence;
+
+    KShortestPathIterator(GraphSnapshot snap, int source, int destination, long k) {
+        super(snap, k);
+        this.snap = snap;
+        this.source = source;
+        this.destination = destination;
+    }
+
+    @Override
+    int[] computeNext() {
+        if (found.isEmpty()) {
+            int[] first = snap.dijkstraAvoiding(source, destination, null, null);
+            if (first != null) {
+                found.add(first);
+                queued.add(key(first));
+            }
+            return first;
+        }
+
+        int[] previous = found.get(found.size() - 1);
+        BitSet bannedNodes = new BitSet(snap.nodeCount());
+        BitSet bannedEdges = new BitSet(snap.edgeCount());
+        int[] offsets = snap.offsets();
+        int[] targets = snap.targets();
+        for (int i = 0; i + 1 < previous.length && !isCancelled(); i++) {
+            int spur = previous[i];
+            bannedEdges.clear();
+            for (int[] path : found) {
+                if (path.length > i + 1 && sameRoot(path, previous, i)) {
+                    for (int e = offsets[spur]; e < offsets[spur + 1]; e++) {
+                        if (targets[e] == path[i + 1]) {
+                            bannedEdges.set(e);
+                        }
+                    }
+                }
+            }
+            int[] spurPath = snap.dijkstraAvoiding(spur, destination, bannedNodes, bannedEdges);
+            if (spurPath != null) {
+                int[] candidate = Arrays.copyOf(previous, i + spurPath.length);
+                System.arraycopy(spurPath, 0, candidate, i, spurPath.length);
+                offer(candidate);
+            }
+            // The spur node becomes part of the root for the next deviation
+            bannedNodes.set(spur);
+        }
+
+        Candidate best = candidates.poll();
+        if (best == null || isCancelled()) {
+            return null;
+        }
+        found.add(best.path);
+        return best.path;
+    }
+
+    private void offer(int[] path) {
+        if (queued.add(key(path))) {
+            candidates.add(new Candidate(path, snap.pathCost(path), sequence++));
+        }
+    }
+
+    private static List<Integer> key(int[] path) {
+        List<Integer> key = new ArrayList<>(path.length);
+        for (int id : path) {
+            key.add(id);
+        }
+        return key;
+    }
+
+    // Whether a and b agree on their first length + 1 nodes
+    private static boolean sameRoot(int[] a, int[] b, int length) {
+        for (int j = 0; j <= length; j++) {
+            if (a[j] != b[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Ties on cost go to the path with fewer edges, then to the one found first
+    private static final class Candidate implements Comparable<Candidate> {
+        final int[] path;
+        final double cost;
+        final long sequence;
+
+        Candidate(int[] path, double cost, long sequence) {
+            this.path = path;
+            this.cost = cost;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byCost = Double.compare(cost, other.cost);
+            if (byCost != 0) {
+                return byCost;
+            }
+            int byLength = Integer.compare(path.length, other.path.length);
+            return byLength != 0 ? byLength : Long.compare(sequence, other.sequence);
+        }
+    }
+}
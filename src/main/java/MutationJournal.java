@@ -0,0 +1,235 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only log of graph mutations. Each record is
+//   type (1 byte), first name, second name (empty if unused), CRC32 of the preceding bytes (4 bytes)
+// with names written as a varint byte length followed by UTF-8. The file starts with the magic "DOTJ", a format
+// version byte and the 8-byte generation of the snapshot it applies to.
+//
+// Appends go to an in-memory buffer. A background thread writes the buffer out and fsyncs it every commit
+// interval, so many mutations share one fsync (group commit); sync() forces the same immediately. A crash
+// loses at most the mutations of the last interval, and a torn final record is detected by its checksum and
+// dropped on recovery.
+final class MutationJournal implements Closeable {
+    static final byte ADD_NODE = 1;
+    static final byte ADD_EDGE = 2;
+    static final byte REMOVE_NODE = 3;
+    static final byte REMOVE_EDGE = 4;
+
+    private static final byte[] MAGIC = {'D', 'O', 'T', 'J'};
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 1 + 8;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // Receives the records of a journal being replayed
+    interface Handler {
+        void apply(byte type, String first, String second);
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService flusher;
+    private long size;
+    private IOException flushFailure;
+
+    private MutationJournal(FileChannel channel, long size, long commitIntervalMillis) {
+        this.channel = channel;
+        this.size = size;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "mutation-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::groupCommit, commitIntervalMillis, commitIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Open a journal for appending, creating it if needed. An existing journal must have been replayed first;
+    // validLength (from replay) cuts off any torn record at its end.
+    static MutationJournal open(java.nio.file.Path file, long generation, long validLength, long commitIntervalMillis)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (validLength < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.put(MAGIC).put((byte) FORMAT_VERSION).putLong(generation).flip();
+                channel.truncate(0);
+                while (header.hasRemaining()) {
+                    channel.write(header, HEADER_SIZE - header.remaining());
+                }
+                channel.force(true);
+                validLength = HEADER_SIZE;
+            } else {
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+            return new MutationJournal(channel, validLength, commitIntervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Feed every intact record of a journal to handler; returns the length of the intact prefix, or 0 if the file
+    // is missing or belongs to another generation
+    static long replay(java.nio.file.Path file, long generation, Handler handler) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.remaining() < HEADER_SIZE) {
+                return 0;
+            }
+            byte[] magic = new byte[MAGIC.length];
+            data.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || data.get() != FORMAT_VERSION) {
+                throw new IOException("Not a mutation journal: " + file);
+            }
+            if (data.getLong() != generation) {
+                return 0;
+            }
+
+            CRC32 crc = new CRC32();
+            while (data.hasRemaining()) {
+                int start = data.position();
+                byte type;
+                String first;
+                String second;
+                try {
+                    type = data.get();
+                    first = readString(data);
+                    second = readString(data);
+                    int end = data.position();
+                    int checksum = data.getInt();
+                    crc.reset();
+                    crc.update(data.duplicate().position(start).limit(end));
+                    if ((int) crc.getValue() != checksum) {
+                        return start;
+                    }
+                } catch (RuntimeException torn) {
+                    // Truncated record (BufferUnderflowException or a garbage length): the crash point
+                    return start;
+                }
+                // Outside the torn-record check: a failure applying an intact record must not truncate the journal
+                handler.apply(type, first, second);
+            }
+            return data.position();
+        }
+    }
+
+    synchronized void append(byte type, String first, String second) throws IOException {
+        if (flushFailure != null) {
+            throw flushFailure;
+        }
+        byte[] firstBytes = first.getBytes(StandardCharsets.UTF_8);
+        byte[] secondBytes = second == null ? new byte[0] : second.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 5 + firstBytes.length + 5 + secondBytes.length + 4;
+        if (buffer.remaining() < length) {
+            writeBuffer();
+        }
+        ByteBuffer target = length <= buffer.capacity() ? buffer : ByteBuffer.allocate(length);
+        int start = target.position();
+        target.put(type);
+        putString(target, firstBytes);
+        putString(target, secondBytes);
+        crc.reset();
+        crc.update(target.duplicate().position(start).limit(target.position()));
+        target.putInt((int) crc.getValue());
+        size += target.position() - start;
+        if (target != buffer) {
+            target.flip();
+            while (target.hasRemaining()) {
+                channel.write(target);
+            }
+        }
+    }
+
+    // Bytes in the journal, including records not yet written out
+    synchronized long size() {
+        return size;
+    }
+
+    // Make every record appended so far durable
+    void sync() throws IOException {
+        synchronized (this) {
+            writeBuffer();
+        }
+        channel.force(false);
+    }
+
+    private void groupCommit() {
+        try {
+            sync();
+        } catch (IOException e) {
+            synchronized (this) {
+                flushFailure = e;
+            }
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        int value = bytes.length;
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+        out.put(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            if (shift > 28) {
+                throw new IllegalStateException("Malformed length");
+            }
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalStateException("Malformed length");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
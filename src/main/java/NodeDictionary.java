@@ -0,0 +1,205 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Node labels numbered 0..size-1 in the order they were added. Lookups go through an open-addressing table of
+// ids rather than a HashMap, so there are no entry objects or boxed Integers. Labels are either kept as the
+// String objects handed in (shared with whoever else holds them) or, off-heap, packed as UTF-8 into one direct
+// buffer and decoded only when nameOf is called.
+final class NodeDictionary {
+    private final boolean offHeap;
+    // On-heap labels, indexed by id
+    private String[] labels;
+    // Off-heap labels: id's bytes are bytes[byteOffsets[id] .. byteOffsets[id + 1])
+    private ByteBuffer bytes;
+    private int[] byteOffsets;
+    // Hash of each label, so probing and resizing never have to touch the labels themselves
+    private int[] hashes;
+    // Open-addressing table of id + 1 (0 marks an empty slot); its length is a power of two
+    private int[] table;
+    private int size;
+
+    NodeDictionary(int expectedSize, boolean offHeap) {
+        this.offHeap = offHeap;
+        int capacity = Math.max(16, expectedSize);
+        if (offHeap) {
+            bytes = ByteBuffer.allocateDirect(capacity * 8);
+            byteOffsets = new int[capacity + 1];
+        } else {
+            labels = new String[capacity];
+        }
+        hashes = new int[capacity];
+        table = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    }
+
+    boolean isOffHeap() {
+        return offHeap;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Id of label, adding it if it is new
+    int add(String label) {
+        if (!offHeap) {
+            int hash = mix(label.hashCode());
+            int slot = find(label, null, 0, hash);
+            if (table[slot] != 0) {
+                return table[slot] - 1;
+            }
+            ensureCapacity();
+            labels[size] = label;
+            return insert(hash);
+        }
+        byte[] utf8 = label.getBytes(StandardCharsets.UTF_8);
+        return addUtf8(utf8, utf8.length);
+    }
+
+    // Id of the label whose UTF-8 encoding is utf8[0 .. length), adding it if it is new; off-heap dictionaries
+    // copy the bytes straight into their buffer without creating a String
+    int addUtf8(byte[] utf8, int length) {
+        if (!offHeap) {
+            return add(new String(utf8, 0, length, StandardCharsets.UTF_8));
+        }
+        int hash = hashUtf8(utf8, length);
+        int slot = find(null, utf8, length, hash);
+        if (table[slot] != 0) {
+            return table[slot] - 1;
+        }
+        ensureCapacity();
+        int start = byteOffsets[size];
+        if (bytes.capacity() - start < length) {
+            ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(2L * bytes.capacity(), (long) start + length)));
+            bytes.clear().limit(start);
+            grown.put(bytes);
+            bytes = grown;
+        }
+        bytes.clear().position(start);
+        bytes.put(utf8, 0, length);
+        byteOffsets[size + 1] = start + length;
+        return insert(hash);
+    }
+
+    // Id of label, or -1 if it is not in the dictionary
+    int idOf(String label) {
+        int slot;
+        if (offHeap) {
+            byte[] utf8 = label.getBytes(StandardCharsets.UTF_8);
+            slot = find(null, utf8, utf8.length, hashUtf8(utf8, utf8.length));
+        } else {
+            slot = find(label, null, 0, mix(label.hashCode()));
+        }
+        return table[slot] - 1;
+    }
+
+    // On-heap dictionaries return the stored String; off-heap ones decode a new one on every call
+    String nameOf(int id) {
+        if (!offHeap) {
+            return labels[id];
+        }
+        int start = byteOffsets[id];
+        byte[] utf8 = new byte[byteOffsets[id + 1] - start];
+        bytes.duplicate().position(start).get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // Approximate bytes held by the dictionary. On-heap labels are counted as compact Latin-1 Strings even though
+    // they are usually shared with the Graphviz model; off-heap labels are counted at their UTF-8 size.
+    long memoryBytes() {
+        long total = 4L * (table.length + hashes.length);
+        if (offHeap) {
+            total += 4L * byteOffsets.length + bytes.capacity();
+        } else {
+            total += 4L * labels.length;
+            for (int id = 0; id < size; id++) {
+                total += 40 + labels[id].length();
+            }
+        }
+        return total;
+    }
+
+    // Slot holding the label (given either as a String or as UTF-8 bytes), or the empty slot where it would go
+    private int find(String label, byte[] utf8, int length, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && (label != null ? label.equals(labels[id]) : sameBytes(id, utf8, length))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean sameBytes(int id, byte[] utf8, int length) {
+        int start = byteOffsets[id];
+        if (byteOffsets[id + 1] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes.get(start + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Record the label just stored at index size and give it the next id
+    private int insert(int hash) {
+        int id = size++;
+        hashes[id] = hash;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            place(id);
+        }
+        return id;
+    }
+
+    private void place(int id) {
+        int mask = table.length - 1;
+        int slot = hashes[id] & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id + 1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int id = 0; id < size; id++) {
+            place(id);
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size == hashes.length) {
+            int capacity = hashes.length * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            if (offHeap) {
+                byteOffsets = Arrays.copyOf(byteOffsets, capacity + 1);
+            } else {
+                labels = Arrays.copyOf(labels, capacity);
+            }
+        }
+    }
+
+    // FNV-1a over the UTF-8 bytes, then mixed like the String hashes
+    private static int hashUtf8(byte[] utf8, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (utf8[i] & 0xFF)) * 0x01000193;
+        }
+        return mix(hash);
+    }
+
+    // Spread the bits so linear probing over a power-of-two table does not cluster on similar labels
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+}
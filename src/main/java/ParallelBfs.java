@@ -0,0 +1,209 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Level-synchronous, direction-optimizing BFS over a GraphSnapshot. Each level is expanded by fork-join tasks
+// that claim nodes in an atomic bitset; when the frontier's outgoing edges outweigh the unexplored ones, the
+// level is instead computed bottom-up by letting every unvisited node look for a parent in the frontier.
+final class ParallelBfs {
+    // Frontier entries (top-down) or node ids (bottom-up) handled by one task before it stops splitting
+    private static final int CHUNK = 2048;
+    // Switching thresholds from Beamer et al., "Direction-Optimizing Breadth-First Search"
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] inOffsets;
+    private final int[] sources;
+    private final int nodeCount;
+
+    private final AtomicLongArray visited;
+    private final int[] parent;
+    private int[] frontier;
+    private int frontierSize;
+    private long[] frontierBits;
+    private int[] next;
+    private final AtomicInteger nextSize = new AtomicInteger();
+
+    private ParallelBfs(GraphSnapshot snap) {
+        this.offsets = snap.offsets();
+        this.targets = snap.targets();
+        this.inOffsets = snap.inOffsets();
+        this.sources = snap.sources();
+        this.nodeCount = snap.nodeCount();
+        this.visited = new AtomicLongArray((nodeCount >>> 6) + 1);
+        this.parent = new int[nodeCount];
+        this.frontier = new int[nodeCount];
+        this.next = new int[nodeCount];
+    }
+
+    // Shortest path from source to destination, with the number of nodes visited on the way
+    static GraphSnapshot.SearchResult search(GraphSnapshot snap, int source, int destination, ForkJoinPool pool) {
+        if (source == destination) {
+            return new GraphSnapshot.SearchResult(new int[]{source}, 1);
+        }
+        ParallelBfs bfs = new ParallelBfs(snap);
+        int[] path = bfs.run(source, destination, pool);
+        return new GraphSnapshot.SearchResult(path, bfs.visitedCount());
+    }
+
+    private int visitedCount() {
+        int count = 0;
+        for (int i = 0; i < visited.length(); i++) {
+            count += Long.bitCount(visited.get(i));
+        }
+        return count;
+    }
+
+    private int[] run(int source, int destination, ForkJoinPool pool) {
+        claim(source);
+        frontier[0] = source;
+        frontierSize = 1;
+
+        long unexploredEdges = offsets[nodeCount];
+        long frontierEdges = offsets[source + 1] - offsets[source];
+        boolean bottomUp = false;
+
+        while (frontierSize > 0) {
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+            } else if (bottomUp && frontierSize < nodeCount / BETA) {
+                bottomUp = false;
+            }
+            unexploredEdges -= frontierEdges;
+
+            nextSize.set(0);
+            if (bottomUp) {
+                frontierBits = new long[(nodeCount >>> 6) + 1];
+                for (int i = 0; i < frontierSize; i++) {
+                    frontierBits[frontier[i] >>> 6] |= 1L << frontier[i];
+                }
+                pool.invoke(new BottomUpStep(0, nodeCount));
+            } else {
+                pool.invoke(new TopDownStep(0, frontierSize));
+            }
+
+            if (isVisited(destination)) {
+                return GraphSnapshot.reconstructPath(source, destination, parent);
+            }
+
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+            frontierSize = nextSize.get();
+            frontierEdges = 0;
+            for (int i = 0; i < frontierSize; i++) {
+                frontierEdges += offsets[frontier[i] + 1] - offsets[frontier[i]];
+            }
+        }
+        return null; // No path found
+    }
+
+    private boolean isVisited(int node) {
+        return (visited.get(node >>> 6) & (1L << node)) != 0;
+    }
+
+    // Atomically mark node visited; returns false if another task got there first
+    private boolean claim(int node) {
+        int word = node >>> 6;
+        long bit = 1L << node;
+        while (true) {
+            long old = visited.get(word);
+            if ((old & bit) != 0) {
+                return false;
+            }
+            if (visited.compareAndSet(word, old, old | bit)) {
+                return true;
+            }
+        }
+    }
+
+    // Append a task's discoveries to the next frontier with a single reservation
+    private void publish(int[] found, int count) {
+        if (count > 0) {
+            System.arraycopy(found, 0, next, nextSize.getAndAdd(count), count);
+        }
+    }
+
+    // Expand frontier[lo, hi) along outgoing edges
+    private final class TopDownStep extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo;
+        private final int hi;
+
+        TopDownStep(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > CHUNK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new TopDownStep(lo, mid), new TopDownStep(mid, hi));
+                return;
+            }
+            int[] found = new int[64];
+            int count = 0;
+            for (int i = lo; i < hi; i++) {
+                int current = frontier[i];
+                for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                    int neighbor = targets[e];
+                    if (!isVisited(neighbor) && claim(neighbor)) {
+                        parent[neighbor] = current;
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = neighbor;
+                    }
+                }
+            }
+            publish(found, count);
+        }
+    }
+
+    // Let each unvisited node in [lo, hi) look for a predecessor in the current frontier
+    private final class BottomUpStep extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo;
+        private final int hi;
+
+        BottomUpStep(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > CHUNK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new BottomUpStep(lo, mid), new BottomUpStep(mid, hi));
+                return;
+            }
+            int[] found = new int[64];
+            int count = 0;
+            for (int node = lo; node < hi; node++) {
+                if (isVisited(node)) {
+                    continue;
+                }
+                for (int e = inOffsets[node]; e < inOffsets[node + 1]; e++) {
+                    int predecessor = sources[e];
+                    if ((frontierBits[predecessor >>> 6] & (1L << predecessor)) != 0) {
+                        // Only this task looks at node, but neighbouring bits share a word, so still claim atomically
+                        claim(node);
+                        parent[node] = predecessor;
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = node;
+                        break;
+                    }
+                }
+            }
+            publish(found, count);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+// Callback for the streaming parseGraph overloads, invoked periodically while a DOT stream is loaded
+public interface ParseProgressListener {
+    void onProgress(long bytesRead, int nodeCount, long edgeCount);
+
+    // Called once when the whole stream has been loaded
+    default void onComplete(long bytesRead, int nodeCount, long edgeCount, long elapsedNanos) {
+        onProgress(bytesRead, nodeCount, edgeCount);
+    }
+}
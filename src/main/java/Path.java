@@ -1,26 +1,95 @@
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.*;
 
 
 public class Path {
+    // Paths found by a search keep only the node ids of the snapshot they were found in; the label list is built
+    // on first request (or when the path is extended with addNode)
     private List<String> nodes;
+    private GraphSnapshot snapshot;
+    private int[] ids;
+    private double cost;
+    private boolean costKnown;
 
     public Path() {
         this.nodes = new ArrayList<>();
-        nodes = new ArrayList<>();
+        this.costKnown = true;
     }
 
+    Path(GraphSnapshot snapshot, int[] ids) {
+        this.snapshot = snapshot;
+        this.ids = ids;
+    }
+
+    // Extending a path found by a search detaches it into a plain list. Its cost keeps following the graph it was
+    // found in: the cheapest edge to the new node is added, or infinity if that graph has no such edge.
     public void addNode(String node) {
+        if (ids != null) {
+            nodes = new ArrayList<>(getNodes());
+            computeCost();
+            ids = null;
+        }
+        if (snapshot != null && !nodes.isEmpty()) {
+            cost += edgeCost(nodes.get(nodes.size() - 1), node);
+        }
         nodes.add(node);
     }
 
+    // Cheapest edge between two labels in the snapshot the path was found in; infinite if there is none
+    private double edgeCost(String from, String to) {
+        int source = snapshot.idOf(from);
+        int target = snapshot.idOf(to);
+        return source < 0 || target < 0 ? Double.POSITIVE_INFINITY : snapshot.pathCost(new int[]{source, target});
+    }
+
+    // For paths returned by a search this is a read-only view that maps ids to labels as it is read; use addNode
+    // to extend one. Paths built with new Path() return their own mutable list.
     public List<String> getNodes() {
+        if (nodes == null) {
+            int[] path = ids;
+            GraphSnapshot snap = snapshot;
+            nodes = new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return snap.nameOf(path[index]);
+                }
+
+                @Override
+                public int size() {
+                    return path.length;
+                }
+            };
+        }
         return nodes;
     }
 
+    // Number of edges on the path
+    public int length() {
+        int size = ids != null ? ids.length : nodes.size();
+        return Math.max(0, size - 1);
+    }
+
+    // Total edge weight along the path (edges without a weight count as 1)
+    public double getCost() {
+        computeCost();
+        return cost;
+    }
+
+    public void setCost(double cost) {
+        this.cost = cost;
+        this.costKnown = true;
+    }
+
+    private void computeCost() {
+        if (!costKnown) {
+            cost = snapshot.pathCost(ids);
+            costKnown = true;
+        }
+    }
+
     @Override
     public String toString() {
-        return String.join(" -> ", nodes);
+        return String.join(" -> ", getNodes());
     }
 }
@@ -0,0 +1,78 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Lazily produced sequence of paths over one graph snapshot. Each path is computed only when it is asked for, so
+// stopping early (or calling cancel, from any thread) skips the rest of the search. Later changes to the graph
+// are not seen by an iterator that already exists.
+public abstract class PathIterator implements Iterator<Path> {
+    private final GraphSnapshot snapshot;
+    private final long maxCount;
+    private volatile boolean cancelled;
+    private long produced;
+    private int[] next;
+    private boolean done;
+
+    PathIterator(GraphSnapshot snapshot, long maxCount) {
+        this.snapshot = snapshot;
+        this.maxCount = maxCount;
+    }
+
+    // Node ids of the next path, or null once there are no more
+    abstract int[] computeNext();
+
+    // Stop the search; hasNext returns false from now on
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Number of paths handed out so far
+    public long getCount() {
+        return produced;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            if (cancelled || produced >= maxCount || (next = computeNext()) == null) {
+                done = true;
+            }
+        }
+        return next != null && !cancelled;
+    }
+
+    @Override
+    public Path next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int[] ids = next;
+        next = null;
+        produced++;
+        return new Path(snapshot, ids);
+    }
+
+    // Sequential stream over the remaining paths; closing the stream cancels the search
+    public Stream<Path> stream() {
+        Spliterator<Path> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::cancel);
+    }
+
+    // Iterator that never produces anything, for lookups that fail before a search starts
+    static PathIterator empty(GraphSnapshot snapshot) {
+        return new PathIterator(snapshot, 0) {
+            @Override
+            int[] computeNext() {
+                return null;
+            }
+        };
+    }
+}
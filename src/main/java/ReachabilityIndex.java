@@ -0,0 +1,176 @@
+import java.util.Arrays;
+
+// Precomputed answers to "is there a path from u to v". Strongly connected components are collapsed into a DAG,
+// a spanning forest of the DAG is numbered in post-order so each subtree is one interval [low, post], and each
+// component is labelled with the merged intervals of everything it reaches (Agrawal et al.'s compressed
+// transitive closure). A query is then a binary search for the target's post number in the source's label.
+public final class ReachabilityIndex {
+    private final StronglyConnectedComponents scc;
+    private final int[] post;
+    // Component c's label is the sorted, disjoint intervals intervals[2i]..intervals[2i + 1] for
+    // i in [labelOffsets[c], labelOffsets[c + 1])
+    private final int[] labelOffsets;
+    private final int[] intervals;
+    private final long buildTimeNanos;
+
+    private ReachabilityIndex(StronglyConnectedComponents scc, int[] post, int[] labelOffsets, int[] intervals,
+                              long buildTimeNanos) {
+        this.scc = scc;
+        this.post = post;
+        this.labelOffsets = labelOffsets;
+        this.intervals = intervals;
+        this.buildTimeNanos = buildTimeNanos;
+    }
+
+    static ReachabilityIndex of(GraphSnapshot snap) {
+        long start = System.nanoTime();
+        StronglyConnectedComponents scc = snap.components();
+        int componentCount = scc.componentCount();
+        int[][] dag = scc.condensation();
+        int[] dagOffsets = dag[0];
+        int[] dagTargets = dag[1];
+
+        // Post-order a spanning forest of the DAG, starting from the highest ids (sources come last in Tarjan order)
+        int[] post = new int[componentCount];
+        int[] low = new int[componentCount];
+        boolean[] visited = new boolean[componentCount];
+        int[] callNode = new int[componentCount];
+        int[] callEdge = new int[componentCount];
+        int nextPost = 0;
+        for (int root = componentCount - 1; root >= 0; root--) {
+            if (visited[root]) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = dagOffsets[root];
+            visited[root] = true;
+            low[root] = nextPost;
+            while (depth >= 0) {
+                int c = callNode[depth];
+                if (callEdge[depth] < dagOffsets[c + 1]) {
+                    int child = dagTargets[callEdge[depth]++];
+                    if (!visited[child]) {
+                        visited[child] = true;
+                        low[child] = nextPost;
+                        depth++;
+                        callNode[depth] = child;
+                        callEdge[depth] = dagOffsets[child];
+                    }
+                    continue;
+                }
+                post[c] = nextPost++;
+                depth--;
+            }
+        }
+
+        // Successors always have lower ids, so labelling in id order sees every successor's final label first
+        int[] labelOffsets = new int[componentCount + 1];
+        int[] intervals = new int[Math.max(16, componentCount * 2)];
+        int used = 0;
+        int[] scratch = new int[16];
+        for (int c = 0; c < componentCount; c++) {
+            int count = 0;
+            scratch = ensure(scratch, 2);
+            scratch[count++] = low[c];
+            scratch[count++] = post[c];
+            for (int e = dagOffsets[c]; e < dagOffsets[c + 1]; e++) {
+                int successor = dagTargets[e];
+                int from = 2 * labelOffsets[successor];
+                int to = 2 * labelOffsets[successor + 1];
+                scratch = ensure(scratch, count + to - from);
+                System.arraycopy(intervals, from, scratch, count, to - from);
+                count += to - from;
+            }
+            int merged = mergeIntervals(scratch, count);
+
+            labelOffsets[c] = used / 2;
+            if (used + merged > intervals.length) {
+                intervals = Arrays.copyOf(intervals, Math.max(intervals.length * 2, used + merged));
+            }
+            System.arraycopy(scratch, 0, intervals, used, merged);
+            used += merged;
+            labelOffsets[c + 1] = used / 2;
+        }
+
+        return new ReachabilityIndex(scc, post, labelOffsets, Arrays.copyOf(intervals, used), System.nanoTime() - start);
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    // Sort interval pairs by start and merge overlapping or adjacent ones in place; returns the new length
+    private static int mergeIntervals(int[] pairs, int length) {
+        int count = length / 2;
+        if (count > 1) {
+            // Pack (start, end) into longs so a primitive sort orders by start
+            long[] packed = new long[count];
+            for (int i = 0; i < count; i++) {
+                packed[i] = ((long) pairs[2 * i] << 32) | (pairs[2 * i + 1] & 0xFFFFFFFFL);
+            }
+            Arrays.sort(packed);
+            for (int i = 0; i < count; i++) {
+                pairs[2 * i] = (int) (packed[i] >>> 32);
+                pairs[2 * i + 1] = (int) packed[i];
+            }
+        }
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            int start = pairs[2 * i];
+            int end = pairs[2 * i + 1];
+            if (out > 0 && start <= pairs[out - 1] + 1) {
+                pairs[out - 1] = Math.max(pairs[out - 1], end);
+            } else {
+                pairs[out++] = start;
+                pairs[out++] = end;
+            }
+        }
+        return out;
+    }
+
+    // Whether destination can be reached from source (every node reaches itself)
+    boolean isReachable(int source, int destination) {
+        int from = scc.componentOf(source);
+        int to = scc.componentOf(destination);
+        if (from == to) {
+            return true;
+        }
+        int target = post[to];
+        int lo = labelOffsets[from];
+        int hi = labelOffsets[from + 1] - 1;
+        // Find the last interval starting at or before target
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (intervals[2 * mid] <= target) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi >= labelOffsets[from] && intervals[2 * hi + 1] >= target;
+    }
+
+    public long getBuildTimeNanos() {
+        return buildTimeNanos;
+    }
+
+    public int getComponentCount() {
+        return labelOffsets.length - 1;
+    }
+
+    public int getIntervalCount() {
+        return intervals.length / 2;
+    }
+
+    // Approximate heap footprint of the index arrays (including the node-to-component map), in bytes
+    public long getMemoryBytes() {
+        return 4L * (scc.nodeCount() + post.length + labelOffsets.length + intervals.length);
+    }
+
+    @Override
+    public String toString() {
+        return "ReachabilityIndex[components=" + getComponentCount() + ", intervals=" + getIntervalCount()
+                + ", memoryBytes=" + getMemoryBytes() + ", buildTimeMs=" + buildTimeNanos / 1_000_000 + "]";
+    }
+}
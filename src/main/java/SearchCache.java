@@ -0,0 +1,131 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Bounded LRU cache of GraphSearch results keyed by (source, destination, algorithm). The cache is tagged with
+// the graph's modification counter; a lookup or store against a newer counter drops every entry first, so a
+// result computed before a mutation is never served after it.
+public final class SearchCache {
+    // Cached marker for "no path", distinct from a cache miss
+    static final int[] NO_PATH = new int[0];
+
+    private final LinkedHashMap<Key, int[]> entries;
+    private int maxSize;
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    SearchCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                if (size() > SearchCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Returns the cached node ids, NO_PATH for a cached miss, or null if nothing is cached
+    synchronized int[] lookup(String source, String destination, Algorithm algo, long graphVersion) {
+        invalidateIfStale(graphVersion);
+        int[] ids = graphVersion == version ? entries.get(new Key(source, destination, algo)) : null;
+        if (ids == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return ids;
+    }
+
+    synchronized void store(String source, String destination, Algorithm algo, long graphVersion, int[] ids) {
+        invalidateIfStale(graphVersion);
+        if (maxSize > 0 && graphVersion == version) {
+            entries.put(new Key(source, destination, algo), ids == null ? NO_PATH : ids);
+        }
+    }
+
+    synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (entries.size() > maxSize) {
+            entries.remove(entries.keySet().iterator().next());
+            evictions++;
+        }
+    }
+
+    // A concurrent reader may still be working on an older snapshot; its results are neither served nor stored
+    private void invalidateIfStale(long graphVersion) {
+        if (graphVersion > version) {
+            clear();
+            version = graphVersion;
+        }
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    // Entries dropped to stay within the size limit
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    // Entries dropped because the graph changed
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SearchCache[size=" + entries.size() + "/" + maxSize + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + ", invalidations=" + invalidations + "]";
+    }
+
+    private static final class Key {
+        private final String source;
+        private final String destination;
+        private final Algorithm algo;
+
+        Key(String source, String destination, Algorithm algo) {
+            this.source = source;
+            this.destination = destination;
+            this.algo = algo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return source.equals(other.source) && destination.equals(other.destination) && algo == other.algo;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, destination, algo);
+        }
+    }
+}
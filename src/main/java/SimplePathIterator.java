@@ -0,0 +1,136 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Every simple path (no repeated node) from source to destination, found by an iterative depth-first search that
+// pauses after each path. Nodes that cannot reach the destination are pruned up front with one backwards BFS,
+// so the search never wanders into dead ends. Paths are node sequences, so parallel edges are followed once.
+final class SimplePathIterator extends PathIterator {
+    private final int[] offsets;
+    private final int[] targets;
+    private final int destination;
+    private final int maxDepth;
+    private final BitSet canReach;
+    private final boolean[] onPath;
+    // The current path and, per entry, the next outgoing edge to try
+    private int[] pathNodes;
+    private int[] pathEdges;
+    private int depth;
+
+    SimplePathIterator(GraphSnapshot snap, int source, int destination, int maxDepth, long maxCount) {
+        super(snap, maxCount);
+        int[][] adjacency = distinctSuccessors(snap);
+        this.offsets = adjacency[0];
+        this.targets = adjacency[1];
+        this.destination = destination;
+        this.maxDepth = maxDepth;
+        this.canReach = reachesDestination(snap, destination, maxDepth);
+        this.onPath = new boolean[snap.nodeCount()];
+        this.pathNodes = new int[16];
+        this.pathEdges = new int[16];
+        if (canReach.get(source)) {
+            pathNodes[0] = source;
+            pathEdges[0] = offsets[source];
+            onPath[source] = true;
+        } else {
+            depth = -1;
+        }
+    }
+
+    // The snapshot's CSR arrays, or a copy without repeated targets if the graph has parallel edges
+    private static int[][] distinctSuccessors(GraphSnapshot snap) {
+        int n = snap.nodeCount();
+        int[] offsets = snap.offsets();
+        int[] targets = snap.targets();
+        int[] lastSeen = new int[n];
+        Arrays.fill(lastSeen, -1);
+        int[] distinctOffsets = null;
+        int[] distinctTargets = null;
+        int edges = 0;
+        for (int node = 0; node < n; node++) {
+            if (distinctOffsets != null) {
+                distinctOffsets[node] = edges;
+            }
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int target = targets[e];
+                if (lastSeen[target] == node) {
+                    if (distinctOffsets == null) {
+                        // First repeat: copy what has been kept so far and continue on the copy
+                        distinctOffsets = Arrays.copyOf(offsets, n + 1);
+                        distinctTargets = Arrays.copyOf(targets, targets.length);
+                    }
+                    continue;
+                }
+                lastSeen[target] = node;
+                if (distinctTargets != null) {
+                    distinctTargets[edges] = target;
+                }
+                edges++;
+            }
+        }
+        if (distinctOffsets == null) {
+            return new int[][]{offsets, targets};
+        }
+        distinctOffsets[n] = edges;
+        return new int[][]{distinctOffsets, distinctTargets};
+    }
+
+    // Nodes within maxDepth edges of the destination, walking predecessor lists backwards
+    private static BitSet reachesDestination(GraphSnapshot snap, int destination, int maxDepth) {
+        int[] inOffsets = snap.inOffsets();
+        int[] sources = snap.sources();
+        BitSet seen = new BitSet(snap.nodeCount());
+        int[] queue = new int[snap.nodeCount()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = destination;
+        seen.set(destination);
+        for (int level = 0; level < maxDepth && head < tail; level++) {
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int current = queue[head++];
+                for (int e = inOffsets[current]; e < inOffsets[current + 1]; e++) {
+                    if (!seen.get(sources[e])) {
+                        seen.set(sources[e]);
+                        queue[tail++] = sources[e];
+                    }
+                }
+            }
+        }
+        return seen;
+    }
+
+    @Override
+    int[] computeNext() {
+        if (depth == 0 && pathNodes[0] == destination) {
+            // The only simple path from a node to itself is the node alone
+            depth = -1;
+            return new int[]{destination};
+        }
+        while (depth >= 0 && !isCancelled()) {
+            int node = pathNodes[depth];
+            if (pathEdges[depth] == offsets[node + 1]) {
+                onPath[node] = false;
+                depth--;
+                continue;
+            }
+            int neighbor = targets[pathEdges[depth]++];
+            if (neighbor == destination) {
+                if (depth + 1 <= maxDepth && !onPath[neighbor]) {
+                    int[] path = Arrays.copyOf(pathNodes, depth + 2);
+                    path[depth + 1] = destination;
+                    return path;
+                }
+            } else if (!onPath[neighbor] && depth + 1 < maxDepth && canReach.get(neighbor)) {
+                if (depth + 1 == pathNodes.length) {
+                    pathNodes = Arrays.copyOf(pathNodes, pathNodes.length * 2);
+                    pathEdges = Arrays.copyOf(pathEdges, pathEdges.length * 2);
+                }
+                depth++;
+                pathNodes[depth] = neighbor;
+                pathEdges[depth] = offsets[neighbor];
+                onPath[neighbor] = true;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,252 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Strongly connected components of a GraphSnapshot, found with an iterative Tarjan pass so deep graphs cannot
+// overflow the call stack. Components are numbered in the order Tarjan completes them, which is a reverse
+// topological order of the condensation: every edge between components goes from a higher id to a lower one.
+// Like the snapshot it was computed from, the decomposition does not change when the graph does.
+public final class StronglyConnectedComponents {
+    private final GraphSnapshot snap;
+    private final int[] componentOf;
+    private final int componentCount;
+    // Nodes grouped by component (members[memberOffsets[c] .. memberOffsets[c + 1])) and the condensation DAG,
+    // both built on first use
+    private int[] memberOffsets;
+    private int[] members;
+    private int[][] condensation;
+
+    private StronglyConnectedComponents(GraphSnapshot snap, int[] componentOf, int componentCount) {
+        this.snap = snap;
+        this.componentOf = componentOf;
+        this.componentCount = componentCount;
+    }
+
+    static StronglyConnectedComponents of(GraphSnapshot snap) {
+        int n = snap.nodeCount();
+        int[] offsets = snap.offsets();
+        int[] targets = snap.targets();
+
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] componentOf = new int[n];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        // Explicit DFS call stack: the node and the next outgoing edge to look at
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        int nextIndex = 0;
+        int componentCount = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = offsets[root];
+            index[root] = low[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int node = callNode[depth];
+                if (callEdge[depth] < offsets[node + 1]) {
+                    int neighbor = targets[callEdge[depth]++];
+                    if (index[neighbor] < 0) {
+                        index[neighbor] = low[neighbor] = nextIndex++;
+                        stack[stackSize++] = neighbor;
+                        onStack[neighbor] = true;
+                        depth++;
+                        callNode[depth] = neighbor;
+                        callEdge[depth] = offsets[neighbor];
+                    } else if (onStack[neighbor]) {
+                        low[node] = Math.min(low[node], index[neighbor]);
+                    }
+                    continue;
+                }
+
+                // All edges done: pop a component if node is its root, then return to the caller
+                if (low[node] == index[node]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        componentOf[member] = componentCount;
+                    } while (member != node);
+                    componentCount++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int caller = callNode[depth];
+                    low[caller] = Math.min(low[caller], low[node]);
+                }
+            }
+        }
+        return new StronglyConnectedComponents(snap, componentOf, componentCount);
+    }
+
+    int componentOf(int node) {
+        return componentOf[node];
+    }
+
+    int componentCount() {
+        return componentCount;
+    }
+
+    int nodeCount() {
+        return componentOf.length;
+    }
+
+    // Group nodes by component with a counting sort
+    private synchronized void groupMembers() {
+        if (members != null) {
+            return;
+        }
+        int n = componentOf.length;
+        int[] offsets = new int[componentCount + 1];
+        for (int node = 0; node < n; node++) {
+            offsets[componentOf[node] + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        int[] fill = Arrays.copyOf(offsets, componentCount);
+        int[] grouped = new int[n];
+        for (int node = 0; node < n; node++) {
+            grouped[fill[componentOf[node]]++] = node;
+        }
+        memberOffsets = offsets;
+        members = grouped;
+    }
+
+    // Deduplicated condensation edges in CSR form: component c's successors are
+    // result[1][result[0][c] .. result[0][c + 1])
+    synchronized int[][] condensation() {
+        if (condensation != null) {
+            return condensation;
+        }
+        groupMembers();
+        int[] offsets = snap.offsets();
+        int[] targets = snap.targets();
+
+        int[] dagOffsets = new int[componentCount + 1];
+        int[] dagTargets = new int[Math.max(16, offsets[offsets.length - 1] / 4)];
+        int[] lastSeen = new int[componentCount];
+        Arrays.fill(lastSeen, -1);
+        int edges = 0;
+        for (int c = 0; c < componentCount; c++) {
+            dagOffsets[c] = edges;
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int node = members[m];
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    int target = componentOf[targets[e]];
+                    if (target != c && lastSeen[target] != c) {
+                        lastSeen[target] = c;
+                        if (edges == dagTargets.length) {
+                            dagTargets = Arrays.copyOf(dagTargets, edges * 2);
+                        }
+                        dagTargets[edges++] = target;
+                    }
+                }
+            }
+        }
+        dagOffsets[componentCount] = edges;
+        condensation = new int[][]{dagOffsets, Arrays.copyOf(dagTargets, edges)};
+        return condensation;
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    // Component id of a node, or -1 if the node is not in the graph
+    public int getComponentOf(String label) {
+        int id = snap.idOf(label);
+        return id < 0 ? -1 : componentOf[id];
+    }
+
+    // Whether two nodes lie on a common cycle
+    public boolean isSameComponent(String a, String b) {
+        int ca = getComponentOf(a);
+        return ca >= 0 && ca == getComponentOf(b);
+    }
+
+    // Labels of the nodes in a component
+    public List<String> getMembers(int component) {
+        checkComponent(component);
+        groupMembers();
+        int from = memberOffsets[component];
+        int size = memberOffsets[component + 1] - from;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+                }
+                return snap.nameOf(members[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Components with an edge from the given one in the condensation DAG
+    public int[] getSuccessors(int component) {
+        checkComponent(component);
+        int[][] dag = condensation();
+        return Arrays.copyOfRange(dag[1], dag[0][component], dag[0][component + 1]);
+    }
+
+    // Component ids ordered so every condensation edge points forward (sources first)
+    public int[] getTopologicalOrder() {
+        int[] order = new int[componentCount];
+        for (int i = 0; i < componentCount; i++) {
+            order[i] = componentCount - 1 - i;
+        }
+        return order;
+    }
+
+    // Components that contain a cycle: more than one node, or a single node with an edge to itself
+    public List<List<String>> getCycles() {
+        groupMembers();
+        int[] offsets = snap.offsets();
+        int[] targets = snap.targets();
+        List<List<String>> cycles = new ArrayList<>();
+        for (int c = 0; c < componentCount; c++) {
+            int size = memberOffsets[c + 1] - memberOffsets[c];
+            boolean cyclic = size > 1;
+            if (size == 1) {
+                int node = members[memberOffsets[c]];
+                for (int e = offsets[node]; e < offsets[node + 1] && !cyclic; e++) {
+                    cyclic = targets[e] == node;
+                }
+            }
+            if (cyclic) {
+                cycles.add(getMembers(c));
+            }
+        }
+        return cycles;
+    }
+
+    public boolean hasCycle() {
+        return !getCycles().isEmpty();
+    }
+
+    private void checkComponent(int component) {
+        if (component < 0 || component >= componentCount) {
+            throw new IllegalArgumentException("No component " + component + " (there are " + componentCount + ").");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StronglyConnectedComponents[nodes=" + componentOf.length + ", components=" + componentCount + "]";
+    }
+}
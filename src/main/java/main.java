@@ -1,2 +1,343 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+// Command-line batch runner: loads a graph, then replays a stream of commands against it.
+//
+//   java main <graph.dot | graph.dot.gz | graph.graph> [commands | -] [--threads N] [--batch N]
+//
+// One command per line (blank lines and lines starting with '#' are skipped):
+//   addnode A | removenode A | addedge A B | removeedge A B        mutations, run in order
+//   search A B [BFS|DFS|DIJKSTRA|...] | reachable A B | kshortest A B K | nodes | edges   read-only queries
+//   export FILE [FORMAT]                                          DOT, or any outputGraphics format
+//
+// Commands are read on their own thread while the graph loads. Runs of consecutive read-only queries are handed
+// to a worker pool as one batch; a mutation waits for the batch before it, so every command sees the graph as of
+// its position in the stream. One result line per command is written to stdout in input order, as soon as it and
+// everything before it are done. Per-command latency percentiles go to stderr at exit.
 public class main {
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    // Marks the end of the command stream on the queue between the reader and the dispatcher
+    private static final String[] END = new String[0];
+
+    private final DotGraphParser parser = new DotGraphParser(true);
+    private final PrintStream out;
+    private final ExecutorService workers;
+    private final int batchSize;
+    // Latency per command name, from the moment the command is taken off the queue to its result, so time spent
+    // waiting for a worker or for the batch before it counts
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+
+    private main(PrintStream out, int threads, int batchSize) {
+        this.out = out;
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "query-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSize = batchSize;
+    }
+
+    public static void main(String[] args) {
+        int status = run(args, System.in, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    // Method to run the CLI against the given streams; returns the process exit status
+    static int run(String[] args, InputStream stdin, PrintStream out, PrintStream err) {
+        String commandFile = "-";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        List<String> positional = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--batch")) {
+                    batchSize = Integer.parseInt(args[++i]);
+                } else {
+                    positional.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            positional.clear();
+        }
+        if (positional.isEmpty() || positional.size() > 2 || threads < 1 || batchSize < 1) {
+            err.println("Usage: java main <graph.dot | graph.dot.gz | graph.graph> [commands | -] [--threads N] [--batch N]");
+            return 2;
+        }
+        String graphFile = positional.get(0);
+        if (positional.size() == 2) {
+            commandFile = positional.get(1);
+        }
+        if (!Files.isReadable(Paths.get(graphFile))) {
+            err.println("Cannot read graph file: " + graphFile);
+            return 1;
+        }
+
+        main cli = new main(out, threads, batchSize);
+        try {
+            InputStream commands = commandFile.equals("-") ? stdin : Files.newInputStream(Paths.get(commandFile));
+            try {
+                if (!cli.replay(graphFile, commands, err)) {
+                    return 1;
+                }
+            } finally {
+                if (commands != stdin) {
+                    commands.close();
+                }
+            }
+        } catch (IOException e) {
+            err.println("Failed to read commands: " + e.getMessage());
+            return 1;
+        } finally {
+            cli.workers.shutdown();
+            out.flush();
+            cli.printLatencies(err);
+        }
+        return 0;
+    }
+
+    // Helper method to overlap the three stages: reading commands, loading the graph, and running the commands.
+    // Returns false, without running any command, if the graph cannot be loaded.
+    private boolean replay(String graphFile, InputStream commands, PrintStream err) throws IOException {
+        BlockingQueue<String[]> queue = new ArrayBlockingQueue<>(batchSize * 4);
+        AtomicReference<IOException> readFailure = new AtomicReference<>();
+        Thread reader = new Thread(() -> readCommands(commands, queue, readFailure), "command-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            load(graphFile);
+        } catch (IOException e) {
+            err.println("Failed to load graph " + graphFile + ": " + e.getMessage());
+            return false;
+        }
+
+        List<String[]> batch = new ArrayList<>();
+        // When each command in batch was taken off the queue
+        List<Long> dequeued = new ArrayList<>();
+        try {
+            while (true) {
+                // Block for the first command of a batch, then take whatever else is already waiting
+                String[] command = batch.isEmpty() ? queue.take() : queue.poll();
+                long now = System.nanoTime();
+                if (command == null || command == END || !isQuery(command) || batch.size() == batchSize) {
+                    runBatch(batch, dequeued);
+                }
+                if (command == END) {
+                    break;
+                }
+                if (command != null) {
+                    if (isQuery(command)) {
+                        batch.add(command);
+                        dequeued.add(now);
+                    } else {
+                        out.println(timed(command, now));
+                    }
+                }
+            }
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (readFailure.get() != null) {
+            throw readFailure.get();
+        }
+        return true;
+    }
+
+    private void load(String graphFile) throws IOException {
+        java.nio.file.Path file = Paths.get(graphFile);
+        if (graphFile.endsWith(".graph")) {
+            parser.readSnapshot(file);
+        } else {
+            parser.readGraph(file, false, null);
+        }
+    }
+
+    // Helper method run on the reader thread: split each line into words and queue it, then queue END
+    private static void readCommands(InputStream in, BlockingQueue<String[]> queue,
+                                     AtomicReference<IOException> failure) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    queue.put(line.split("\\s+"));
+                }
+            }
+        } catch (IOException e) {
+            failure.set(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Helper method to run queued queries on the workers and print their results in order as they finish
+    private void runBatch(List<String[]> batch, List<Long> dequeued) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Future<String>> results = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String[] command = batch.get(i);
+            long start = dequeued.get(i);
+            results.add(workers.submit(() -> timed(command, start)));
+        }
+        for (Future<String> result : results) {
+            try {
+                out.println(result.get());
+            } catch (ExecutionException e) {
+                out.println("error: " + e.getCause());
+            }
+        }
+        out.flush();
+        batch.clear();
+        dequeued.clear();
+    }
+
+    private static boolean isQuery(String[] command) {
+        switch (command[0].toLowerCase(Locale.ROOT)) {
+            case "search":
+            case "reachable":
+            case "kshortest":
+            case "nodes":
+            case "edges":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Helper method to run a command and record its latency since start, when it was taken off the queue
+    private String timed(String[] command, long start) {
+        String result;
+        try {
+            result = execute(command);
+        } catch (RuntimeException e) {
+            result = "error: " + e.getMessage();
+        }
+        latencies.computeIfAbsent(command[0].toLowerCase(Locale.ROOT), k -> new Histogram())
+                .record(System.nanoTime() - start);
+        return result;
+    }
+
+    // Helper method to run one command and describe its outcome in a single line
+    private String execute(String[] command) {
+        String name = command[0].toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "addnode":
+                expectArgs(command, 1);
+                parser.addNode(command[1]);
+                return "ok";
+            case "removenode":
+                expectArgs(command, 1);
+                parser.removeNode(command[1]);
+                return "ok";
+            case "addedge":
+                expectArgs(command, 2);
+                parser.addEdge(command[1], command[2]);
+                return "ok";
+            case "removeedge":
+                expectArgs(command, 2);
+                parser.removeEdge(command[1], command[2]);
+                return "ok";
+            case "search": {
+                if (command.length != 3 && command.length != 4) {
+                    throw new IllegalArgumentException("search takes a source, a destination and an optional algorithm");
+                }
+                Algorithm algo = command.length == 4 ? Algorithm.valueOf(command[3].toUpperCase(Locale.ROOT)) : Algorithm.BFS;
+                Path path = parser.GraphSearch(command[1], command[2], algo);
+                return path == null ? "no path" : path.toString();
+            }
+            case "reachable":
+                expectArgs(command, 2);
+                return String.valueOf(parser.isReachable(command[1], command[2]));
+            case "kshortest":
+                expectArgs(command, 3);
+                return parser.kShortestPaths(command[1], command[2], Integer.parseInt(command[3]))
+                        .map(Path::toString)
+                        .collect(Collectors.joining(" | "));
+            case "nodes":
+                expectArgs(command, 0);
+                return String.valueOf(parser.getNodes().size());
+            case "edges":
+                expectArgs(command, 0);
+                return String.valueOf(parser.getEdges().size());
+            case "export":
+                if (command.length == 2) {
+                    export(command[1]);
+                } else {
+                    expectArgs(command, 2);
+                    exportGraphics(command[1], command[2]);
+                }
+                return "ok";
+            default:
+                throw new IllegalArgumentException("unknown command " + command[0]);
+        }
+    }
+
+    // Helper method to write DOT (gzip-compressed for ".gz"), turning a failed write into an error result
+    private void export(String file) {
+        try {
+            parser.writeGraph(Paths.get(file), file.endsWith(".gz"));
+        } catch (IOException e) {
+            throw new IllegalStateException("export failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Helper method to render an image and wait for it, turning a failed render into an error result
+    private void exportGraphics(String file, String format) {
+        if (!GraphRenderer.isSupported(format)) {
+            throw new IllegalArgumentException("unsupported format " + format);
+        }
+        try {
+            parser.outputGraphicsAsync(file, format).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("export failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static void expectArgs(String[] command, int count) {
+        if (command.length != count + 1) {
+            throw new IllegalArgumentException(command[0] + " takes " + count + " argument" + (count == 1 ? "" : "s"));
+        }
+    }
+
+    private void printLatencies(PrintStream err) {
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(latencies).entrySet()) {
+            Histogram latency = entry.getValue();
+            err.printf(Locale.ROOT, "%-10s count=%d p50=%dus p90=%dus p99=%dus max=%dus%n", entry.getKey(),
+                    latency.getCount(), latency.getPercentile(0.5) / 1000, latency.getPercentile(0.9) / 1000,
+                    latency.getPercentile(0.99) / 1000, latency.getMax() / 1000);
+        }
+    }
 }
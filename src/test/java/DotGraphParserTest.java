@@ -1,14 +1,25 @@
 import org.junit.Test;
 import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class DotGraphParserTest {
 
     private DotGraphParser parser;
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Before
     public void setUp() {
         parser = new DotGraphParser();
@@ -23,6 +34,112 @@ public class DotGraphParserTest {
         assertEquals("Number of edges should be 3.", 3, edges.size());
     }
 
+    @Test
+    public void testStreamingParserMatchesGraphvizParser() throws Exception {
+        java.nio.file.Path sample = java.nio.file.Paths.get(getClass().getClassLoader().getResource("sampleGraph.dot").toURI());
+
+        DotGraphParser streamed = new DotGraphParser();
+        streamed.parseGraph(sample);
+        assertEquals("Streaming parser should find the same nodes.", parser.getNodes(), streamed.getNodes());
+        assertEquals("Streaming parser should find the same edges.", parser.getEdges(), streamed.getEdges());
+
+        DotGraphParser mapped = new DotGraphParser();
+        mapped.parseGraph(sample, true, null);
+        assertEquals("Memory-mapped parse should find the same nodes.", parser.getNodes(), mapped.getNodes());
+        assertEquals("Memory-mapped parse should find the same edges.", parser.getEdges(), mapped.getEdges());
+    }
+
+    @Test
+    public void testStreamingParserHandlesDotSyntax() {
+        String dot = "/* header */ strict digraph \"deps\" {\n"
+                + "  rankdir=LR; node [shape=box];\n"
+                + "  // line comment\n"
+                + "  \"core lib\" [label=\"Core\"];\n"
+                + "  app -> \"core lib\" -> util [weight=2];\n"
+                + "  app:port:n -> util;\n"
+                + "  subgraph cluster_x { x1; x2 } -> sink;\n"
+                + "  # preprocessor line\n"
+                + "  -1 -> 2.5\n"
+                + "}\n";
+
+        long[] completed = new long[3];
+        DotGraphParser streamed = new DotGraphParser();
+        streamed.parseGraph(new java.io.ByteArrayInputStream(dot.getBytes(java.nio.charset.StandardCharsets.UTF_8)),
+                new ParseProgressListener() {
+                    @Override
+                    public void onProgress(long bytesRead, int nodeCount, long edgeCount) {
+                    }
+
+                    @Override
+                    public void onComplete(long bytesRead, int nodeCount, long edgeCount, long elapsedNanos) {
+                        completed[0] = bytesRead;
+                        completed[1] = nodeCount;
+                        completed[2] = edgeCount;
+                    }
+                });
+
+        Set<String> expectedNodes = new HashSet<>(java.util.Arrays.asList("core lib", "app", "util", "x1", "x2", "sink", "-1", "2.5"));
+        Set<String> expectedEdges = new HashSet<>(java.util.Arrays.asList(
+                "app -> core lib", "core lib -> util", "app -> util", "x1 -> sink", "x2 -> sink", "-1 -> 2.5"));
+        assertEquals("Streamed nodes should match.", expectedNodes, streamed.getNodes());
+        assertEquals("Streamed edges should match.", expectedEdges, streamed.getEdges());
+        assertEquals("Listener should see every byte.", dot.length(), completed[0]);
+        assertEquals("Listener should see every node.", 8, completed[1]);
+        assertEquals("Listener should see every distinct edge.", 6, completed[2]);
+        assertEquals("Path should follow streamed edges.", "app -> util", streamed.GraphSearch("app", "util", Algorithm.BFS).toString());
+    }
+
+    @Test
+    public void testTruncatedFileLeavesGraphUntouched() throws Exception {
+        Set<String> nodes = new HashSet<>(parser.getNodes());
+        Set<String> edges = new HashSet<>(parser.getEdges());
+        java.nio.file.Path truncated = tempFolder.getRoot().toPath().resolve("truncated.dot");
+        java.nio.file.Files.write(truncated, "digraph big { x -> y; y -> z; w -> ".getBytes("UTF-8"));
+
+        parser.parseGraph(truncated);
+        assertEquals("A failed parse should keep the old nodes.", nodes, parser.getNodes());
+        assertEquals("A failed parse should keep the old edges.", edges, parser.getEdges());
+        assertEquals("Counts should match the old graph.", 3, parser.edgeCount());
+        assertEquals("Search should still run on the old graph.", "A -> B",
+                parser.GraphSearch("A", "B", Algorithm.BFS).toString());
+    }
+
+    @Test
+    public void testParseGraphsMergesShardsInParallel() throws Exception {
+        java.nio.file.Path dir = tempFolder.getRoot().toPath();
+        java.nio.file.Files.write(dir.resolve("core.dot"), "digraph deps { core -> util; util -> log; }".getBytes());
+        java.nio.file.Files.write(dir.resolve("app.dot"), "digraph app { app -> core; core -> util; }".getBytes());
+        java.nio.file.Files.write(dir.resolve("web.dot"), "digraph web { web -> app; web; }".getBytes());
+        java.nio.file.Files.write(dir.resolve("notes.txt"), "not a graph".getBytes());
+
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(3);
+        try {
+            parser.parseGraphs(dir, "*.dot", executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        Set<String> expectedNodes = new HashSet<>(java.util.Arrays.asList("core", "util", "log", "app", "web"));
+        Set<String> expectedEdges = new HashSet<>(java.util.Arrays.asList(
+                "core -> util", "util -> log", "app -> core", "web -> app"));
+        assertEquals("Merged graph should hold every node once.", expectedNodes, parser.getNodes());
+        assertEquals("Merged graph should hold every edge once.", expectedEdges, parser.getEdges());
+        assertEquals("Search should cross file boundaries.", "web -> app -> core -> util -> log",
+                parser.GraphSearch("web", "log", Algorithm.BFS).toString());
+
+        // Nothing matched, or nothing readable: the merged graph stays and no parse is recorded
+        java.nio.file.Files.write(dir.resolve("broken.dot.txt"), "digraph { a -> ".getBytes());
+        GraphMetrics metrics = parser.enableMetrics("shards");
+        try {
+            parser.parseGraphs(dir, "*.none", java.util.concurrent.ForkJoinPool.commonPool());
+            parser.parseGraphs(dir, "broken.*", java.util.concurrent.ForkJoinPool.commonPool());
+            assertEquals("Failed merges should not count as parses.", 0, metrics.getParseCount());
+        } finally {
+            parser.disableMetrics();
+        }
+        assertEquals("Failed merges should keep the graph.", expectedEdges, parser.getEdges());
+    }
+
     @Test
     public void testOutputGraph() {
         String outputPath = "outputGraph.dot";
@@ -32,6 +149,78 @@ public class DotGraphParserTest {
         outputFile.delete();
     }
 
+    @Test
+    public void testOutputGraphicsAsyncFormatsAndMetrics() throws Exception {
+        GraphRenderer renderer = new GraphRenderer(1, 2);
+        parser.setRenderer(renderer);
+        try {
+            List<java.util.concurrent.CompletableFuture<File>> renders = new ArrayList<>();
+            for (String format : new String[]{"svg", "dot", "svg", "dot", "plain"}) {
+                String path = tempFolder.getRoot().toPath().resolve("graph" + renders.size() + "." + format).toString();
+                renders.add(parser.outputGraphicsAsync(path, format));
+            }
+            for (java.util.concurrent.CompletableFuture<File> render : renders) {
+                assertTrue("Rendered file should not be empty.", render.get().length() > 0);
+            }
+            String svg = new String(java.nio.file.Files.readAllBytes(renders.get(0).get().toPath()), "UTF-8");
+            assertTrue("SVG output should be SVG.", svg.contains("<svg"));
+
+            assertEquals("Every render should be counted.", 5, renderer.getCompletedCount());
+            assertEquals("Nothing should be left queued.", 0, renderer.getQueueDepth());
+            assertTrue("Render latency should be recorded.", renderer.getMaxRenderMillis() > 0);
+
+            java.util.concurrent.CompletableFuture<File> pdf = parser.outputGraphicsAsync("graph.pdf", "pdf");
+            assertTrue("Unsupported formats fail the future.", pdf.isCompletedExceptionally());
+        } finally {
+            renderer.close();
+        }
+    }
+
+    @Test
+    public void testOutputGraphParsesBackToSameGraph() throws Exception {
+        String dot = "strict digraph \"deps\" {\n"
+                + "  rankdir=LR; node [shape=box]; edge [color=gray];\n"
+                + "  \"core \\\"lib\\\"\" [label=\"Core\"];\n"
+                + "  app -> \"core \\\"lib\\\"\" [weight=2];\n"
+                + "  app -> util;\n"
+                + "  lonely;\n"
+                + "}\n";
+        DotGraphParser source = new DotGraphParser();
+        source.parseGraph(new java.io.ByteArrayInputStream(dot.getBytes("UTF-8")), null);
+
+        for (String name : new String[]{"out.dot", "out.dot.gz"}) {
+            java.nio.file.Path file = tempFolder.getRoot().toPath().resolve(name);
+            source.outputGraph(file.toString());
+            DotGraphParser reparsed = new DotGraphParser();
+            reparsed.parseGraph(file);
+            assertEquals("Nodes should survive " + name, source.getNodes(), reparsed.getNodes());
+            assertEquals("Edges should survive " + name, source.getEdges(), reparsed.getEdges());
+            assertEquals("Edge attributes should survive " + name, 2.0,
+                    reparsed.GraphSearch("app", "core \"lib\"", Algorithm.DIJKSTRA).getCost(), 1e-9);
+        }
+
+        String written = new String(java.nio.file.Files.readAllBytes(tempFolder.getRoot().toPath().resolve("out.dot")), "UTF-8");
+        assertTrue("Header should keep strict and the name.", written.startsWith("strict digraph \"deps\" {"));
+        assertTrue("Default attributes should be written.", written.contains("node [\"shape\"=\"box\"]"));
+        assertTrue("Node attributes should be written.", written.contains("[\"label\"=\"Core\"]"));
+    }
+
+    @Test
+    public void testOutputGraphKeepsBackslashesBeforeQuotes() {
+        DotGraphParser source = new DotGraphParser();
+        source.addNode("a\\");
+        source.addNode("b\\\"c\\\\");
+        source.addEdge("a\\", "b\\\"c\\\\");
+        source.addEdge("b\\\"c\\\\", "d\\n");
+
+        java.nio.file.Path file = tempFolder.getRoot().toPath().resolve("backslash.dot");
+        source.outputGraph(file, false);
+        DotGraphParser reparsed = new DotGraphParser();
+        reparsed.parseGraph(file);
+        assertEquals("Labels ending in a backslash should survive.", source.getNodes(), reparsed.getNodes());
+        assertEquals("Edges between them should survive.", source.getEdges(), reparsed.getEdges());
+    }
+
     @Test
     public void testOutputGraphics() {
         parser.addNode("A");
@@ -118,6 +307,47 @@ public class DotGraphParserTest {
         assertEquals("Remaining edges should only include D -> B.", expectedRemainingEdges, actualEdges);
     }
 
+    @Test
+    public void testRemoveNodeKeepsGraphProperties() throws Exception {
+        parser.removeNode("C");
+
+        String outputPath = "removeNodeOutput.dot";
+        parser.outputGraph(outputPath);
+        File outputFile = new File(outputPath);
+        String dot = new String(java.nio.file.Files.readAllBytes(outputFile.toPath()));
+        outputFile.delete();
+
+        assertTrue("Graph should still be a digraph named G.", dot.startsWith("digraph \"G\""));
+        assertTrue("Remaining edge should still be exported.", dot.contains("\"A\" -> \"B\""));
+        assertFalse("Removed node should not be exported.", dot.contains("\"C\""));
+    }
+
+    @Test
+    public void testRemoveNodesInBatchOnLargeGraph() {
+        DotGraphParser large = new DotGraphParser();
+        int nodeCount = 200_000;
+        for (int i = 0; i < nodeCount; i++) {
+            large.addEdge("n" + i, "n" + ((i + 1) % nodeCount));
+            large.addEdge("n" + i, "n" + ((i * 7 + 3) % nodeCount));
+        }
+        int edgesBefore = large.getEdges().size();
+
+        String[] labels = new String[10_000];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = "n" + (i * 20);
+        }
+        large.removeNodes(labels);
+
+        Set<String> edges = large.getEdges();
+        assertEquals("Removed nodes should be gone.", nodeCount - labels.length, large.getNodes().size());
+        assertTrue("Edges should have been dropped.", edges.size() < edgesBefore);
+        for (String edge : edges) {
+            String[] ends = edge.split(" -> ");
+            assertTrue("No edge should touch a removed node: " + edge,
+                    Integer.parseInt(ends[0].substring(1)) % 20 != 0 && Integer.parseInt(ends[1].substring(1)) % 20 != 0);
+        }
+    }
+
     @Test
     public void testGraphSearchWithBFS() {
         Path pathAB = parser.GraphSearch("A", "B", Algorithm.BFS);
@@ -163,4 +393,729 @@ public class DotGraphParserTest {
         assertNotNull("Path from A to A should exist as self-path in DFS.", path);
         assertEquals("Path should be A.", "A", path.toString());
     }
+
+    @Test
+    public void testGraphSearchSeesMutationsAfterEarlierSearch() {
+        assertEquals("Path should be A -> B -> C.", "A -> B -> C", parser.GraphSearch("A", "C", Algorithm.BFS).toString());
+
+        parser.addEdge("A", "C");
+        assertEquals("BFS should pick up the new shortcut.", "A -> C", parser.GraphSearch("A", "C", Algorithm.BFS).toString());
+
+        parser.removeEdge("A", "C");
+        parser.removeEdge("B", "C");
+        assertNull("C should be unreachable once its only incoming edges are gone.", parser.GraphSearch("A", "C", Algorithm.BFS));
+    }
+
+    @Test
+    public void testGraphSearchBFSOnLargeGraph() {
+        DotGraphParser large = new DotGraphParser();
+        int length = 200_000;
+        for (int i = 0; i < length; i++) {
+            large.addEdge("n" + i, "n" + (i + 1));
+        }
+        large.addEdge("n0", "n" + (length / 2));
+
+        Path path = large.GraphSearch("n0", "n" + length, Algorithm.BFS);
+        assertNotNull("Path to the end of the chain should exist.", path);
+        assertEquals("BFS should take the shortcut.", length / 2 + 2, path.getNodes().size());
+        assertNotNull("DFS should also reach the end of the chain.", large.GraphSearch("n0", "n" + length, Algorithm.DFS));
+    }
+
+    @Test
+    public void testShortestPathAlgorithmsMatchBFSOnUnweightedGraph() {
+        DotGraphParser random = new DotGraphParser();
+        java.util.Random rng = new java.util.Random(42);
+        int nodeCount = 2_000;
+        for (int i = 0; i < nodeCount * 3; i++) {
+            random.addEdge("n" + rng.nextInt(nodeCount), "n" + rng.nextInt(nodeCount));
+        }
+
+        Set<String> nodes = random.getNodes();
+        for (int query = 0; query < 200; query++) {
+            String src = "n" + rng.nextInt(nodeCount);
+            String dst = "n" + rng.nextInt(nodeCount);
+            if (!nodes.contains(src) || !nodes.contains(dst)) {
+                continue;
+            }
+            Path bfs = random.GraphSearch(src, dst, Algorithm.BFS);
+            for (Algorithm algo : new Algorithm[]{Algorithm.BIDIRECTIONAL_BFS, Algorithm.DIJKSTRA, Algorithm.A_STAR}) {
+                Path other = random.GraphSearch(src, dst, algo);
+                if (bfs == null) {
+                    assertNull(algo + " should agree there is no path.", other);
+                } else {
+                    assertEquals(algo + " should find a path as short as BFS.", bfs.getNodes().size(), other.getNodes().size());
+                    assertEquals(algo + " should start at the source.", src, other.getNodes().get(0));
+                    assertEquals(algo + " should end at the destination.", dst, other.getNodes().get(other.getNodes().size() - 1));
+                    assertEquals(algo + " cost should equal the hop count.", bfs.getCost(), other.getCost(), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelBFSMatchesBFSPathLength() {
+        DotGraphParser random = new DotGraphParser();
+        java.util.Random rng = new java.util.Random(7);
+        int nodeCount = 50_000;
+        for (int i = 0; i < nodeCount * 8; i++) {
+            random.addEdge("n" + rng.nextInt(nodeCount), "n" + rng.nextInt(nodeCount));
+        }
+        random.addNode("isolated");
+
+        Set<String> allEdges = random.getEdges();
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4);
+        random.setSearchPool(pool);
+        try {
+            for (int query = 0; query < 50; query++) {
+                String src = "n" + rng.nextInt(nodeCount);
+                String dst = "n" + rng.nextInt(nodeCount);
+                Path bfs = random.GraphSearch(src, dst, Algorithm.BFS);
+                Path parallel = random.GraphSearch(src, dst, Algorithm.PARALLEL_BFS);
+                if (bfs == null) {
+                    assertNull("Parallel BFS should agree there is no path.", parallel);
+                    continue;
+                }
+                assertEquals("Parallel BFS should find a path as short as BFS.", bfs.getNodes().size(), parallel.getNodes().size());
+                Set<String> edges = new HashSet<>();
+                for (int i = 0; i + 1 < parallel.getNodes().size(); i++) {
+                    edges.add(parallel.getNodes().get(i) + " -> " + parallel.getNodes().get(i + 1));
+                }
+                assertTrue("Parallel BFS path should only use real edges.", allEdges.containsAll(edges));
+            }
+            assertNull("Isolated node should be unreachable.", random.GraphSearch("n0", "isolated", Algorithm.PARALLEL_BFS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGraphSearchBatchMatchesIndividualSearches() {
+        DotGraphParser random = new DotGraphParser();
+        java.util.Random rng = new java.util.Random(11);
+        int nodeCount = 1_000;
+        for (int i = 0; i < nodeCount * 2; i++) {
+            random.addEdge("n" + rng.nextInt(nodeCount), "n" + rng.nextInt(nodeCount));
+        }
+
+        java.util.List<String[]> pairs = new java.util.ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // A handful of sources with many destinations each, plus a missing node
+            pairs.add(new String[]{"n" + rng.nextInt(5), "n" + rng.nextInt(nodeCount)});
+        }
+        pairs.add(new String[]{"n1", "missing"});
+        pairs.add(new String[]{"n2", "n2"});
+
+        for (Algorithm algo : new Algorithm[]{Algorithm.BFS, Algorithm.DFS, Algorithm.DIJKSTRA}) {
+            java.util.List<Path> batch = random.GraphSearchBatch(pairs, algo);
+            assertEquals("Batch should return one result per pair.", pairs.size(), batch.size());
+            for (int i = 0; i < pairs.size(); i++) {
+                Path single = random.GraphSearch(pairs.get(i)[0], pairs.get(i)[1], algo);
+                assertEquals(algo + " batch result " + i + " should match a single search.",
+                        single == null ? null : single.toString(), batch.get(i) == null ? null : batch.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    public void testWeightedShortestPath() {
+        DotGraphParser weighted = new DotGraphParser();
+        weighted.parseGraph(new java.io.ByteArrayInputStream(("digraph {"
+                + " a -> d [weight=10]; a -> b [weight=1]; b -> c [len=2]; c -> d [weight=\"1.5\"]; }").getBytes()), null);
+
+        assertEquals("BFS should take the direct edge.", "a -> d", weighted.GraphSearch("a", "d", Algorithm.BFS).toString());
+        assertEquals("Direct edge should cost its weight.", 10.0, weighted.GraphSearch("a", "d", Algorithm.BFS).getCost(), 1e-9);
+
+        Path dijkstra = weighted.GraphSearch("a", "d", Algorithm.DIJKSTRA);
+        assertEquals("Dijkstra should take the cheaper detour.", "a -> b -> c -> d", dijkstra.toString());
+        assertEquals("Detour should cost 4.5.", 4.5, dijkstra.getCost(), 1e-9);
+
+        Path extended = weighted.GraphSearch("a", "c", Algorithm.DIJKSTRA);
+        extended.addNode("d");
+        assertEquals("Extending a path adds the new edge's weight.", 4.5, extended.getCost(), 1e-9);
+        extended.addNode("a");
+        assertEquals("A missing edge makes the path infinitely expensive.", Double.POSITIVE_INFINITY, extended.getCost(), 0);
+        try {
+            weighted.GraphSearch("a", "c", Algorithm.DIJKSTRA).getNodes().add("d");
+            fail("Nodes of a search result should be read-only.");
+        } catch (UnsupportedOperationException expected) {
+            // Extend with addNode instead
+        }
+
+        weighted.setHeuristic((node, destination) -> node.equals(destination) ? 0 : 1);
+        assertEquals("A* should agree with Dijkstra.", dijkstra.toString(), weighted.GraphSearch("a", "d", Algorithm.A_STAR).toString());
+    }
+
+    @Test
+    public void testAStarWithInconsistentHeuristicFindsCheapestPath() {
+        DotGraphParser weighted = new DotGraphParser();
+        weighted.parseGraph(new java.io.ByteArrayInputStream(("digraph {"
+                + " s -> a [weight=1]; a -> c [weight=1]; s -> c [weight=3]; c -> t [weight=3]; }").getBytes()), null);
+
+        // Admissible (a is 4 from t) but not consistent (h(a) = 4 > w(a, c) + h(c) = 1), so c is first settled
+        // through the direct edge and has to be reopened when the cheaper route through a turns up
+        Map<String, Double> estimates = new HashMap<>();
+        estimates.put("a", 4.0);
+        weighted.setHeuristic((node, destination) -> estimates.getOrDefault(node, 0.0));
+
+        Path path = weighted.GraphSearch("s", "t", Algorithm.A_STAR);
+        assertEquals("A* should still find the cheapest path.", "s -> a -> c -> t", path.toString());
+        assertEquals("Cheapest path should cost 5.", 5.0, path.getCost(), 1e-9);
+    }
+
+    @Test
+    public void testAllPathsAreEnumeratedLazilyWithinLimits() {
+        DotGraphParser diamond = new DotGraphParser();
+        diamond.parseGraph(new java.io.ByteArrayInputStream(("digraph {"
+                + " s -> a; s -> b; a -> t; b -> t; a -> b; s -> t; s -> t; t -> s; x -> t; }").getBytes()), null);
+
+        Set<String> all = new HashSet<>();
+        diamond.allPaths("s", "t", Integer.MAX_VALUE, Long.MAX_VALUE).forEach(p -> all.add(p.toString()));
+        assertEquals("Every simple path should be listed once.",
+                new HashSet<>(java.util.Arrays.asList("s -> t", "s -> a -> t", "s -> b -> t", "s -> a -> b -> t")), all);
+        assertEquals("Depth limit should drop longer paths.", 3, diamond.allPaths("s", "t", 2, Long.MAX_VALUE).count());
+        assertEquals("Count limit should stop the search.", 2, diamond.allPaths("s", "t", 10, 2).count());
+
+        PathIterator paths = diamond.allPathsIterator("s", "t", 10, Long.MAX_VALUE);
+        Path first = paths.next();
+        assertEquals("Length should count edges.", first.getNodes().size() - 1, first.length());
+        paths.cancel();
+        assertFalse("A cancelled iterator should produce nothing more.", paths.hasNext());
+        assertEquals("A missing node should give no paths.", 0, diamond.allPaths("s", "missing", 10, 10).count());
+    }
+
+    @Test
+    public void testKShortestPathsComeCheapestFirst() {
+        DotGraphParser weighted = new DotGraphParser();
+        weighted.parseGraph(new java.io.ByteArrayInputStream(("digraph {"
+                + " a -> d [weight=10]; a -> b [weight=1]; b -> c [len=2]; c -> d [weight=\"1.5\"];"
+                + " b -> d [weight=5]; a -> c [weight=4]; }").getBytes()), null);
+
+        List<Path> paths = new ArrayList<>();
+        weighted.kShortestPaths("a", "d", 10).forEach(paths::add);
+        assertEquals("All four loopless paths should be found.", 4, paths.size());
+        assertEquals("The first path should be Dijkstra's.",
+                weighted.GraphSearch("a", "d", Algorithm.DIJKSTRA).toString(), paths.get(0).toString());
+        double[] costs = {4.5, 5.5, 6.0, 10.0};
+        for (int i = 0; i < costs.length; i++) {
+            assertEquals("Paths should come in cost order.", costs[i], paths.get(i).getCost(), 1e-9);
+        }
+        assertEquals("k should limit the count.", 2, weighted.kShortestPaths("a", "d", 2).count());
+
+        // The stream keeps reading the snapshot it started from
+        PathIterator pinned = weighted.kShortestPathsIterator("a", "d", 10);
+        pinned.next();
+        weighted.removeEdge("a", "d");
+        assertEquals("Later mutations should not affect a running enumeration.", 3,
+                java.util.stream.StreamSupport.stream(
+                        java.util.Spliterators.spliteratorUnknownSize(pinned, 0), false).count());
+    }
+
+    @Test
+    public void testSearchCacheServesHitsAndInvalidatesOnMutation() {
+        SearchCache cache = parser.getSearchCache();
+        parser.GraphSearch("A", "C", Algorithm.BFS);
+        Path cached = parser.GraphSearch("A", "C", Algorithm.BFS);
+        assertEquals("Second search should be a cache hit.", 1, cache.getHitCount());
+        assertEquals("Cached path should be A -> B -> C.", "A -> B -> C", cached.toString());
+
+        parser.addEdge("A", "C");
+        assertEquals("Mutation should invalidate the cached path.", "A -> C", parser.GraphSearch("A", "C", Algorithm.BFS).toString());
+        assertEquals("Stale entry should have been dropped.", 1, cache.getInvalidationCount());
+
+        parser.addNode("D");
+        assertNull("No-path results should be cached too.", parser.GraphSearch("A", "D", Algorithm.BFS));
+        assertNull("No-path results should be cached too.", parser.GraphSearch("A", "D", Algorithm.BFS));
+        assertEquals("Cached no-path should be a hit.", 2, cache.getHitCount());
+
+        parser.setSearchCacheSize(1);
+        parser.GraphSearch("A", "B", Algorithm.BFS);
+        parser.GraphSearch("B", "C", Algorithm.BFS);
+        assertEquals("Cache should respect its size limit.", 1, cache.size());
+        assertTrue("Shrinking and overflowing should evict entries.", cache.getEvictionCount() >= 2);
+    }
+
+    @Test
+    public void testNodeAndEdgeViewsAreLive() {
+        Set<String> nodes = parser.getNodes();
+        Set<String> edges = parser.getEdges();
+        assertSame("The edge view should be reused.", edges, parser.getEdges());
+        java.util.Iterator<String> before = edges.iterator();
+        parser.removeEdge("A", "B");
+        parser.addEdge("C", "D");
+        assertFalse("Edge view should reflect the removal.", edges.contains("A -> B"));
+        assertTrue("Edge view should reflect the addition.", edges.contains("C -> D"));
+        assertEquals("Edge count should follow mutations.", 3, edges.size());
+        assertTrue("Node view should reflect the addition.", nodes.contains("D"));
+        assertEquals("Node count should follow mutations.", 4, parser.nodeCount());
+        int seen = 0;
+        while (before.hasNext()) {
+            before.next();
+            seen++;
+        }
+        assertEquals("An iterator keeps the graph it started on.", 3, seen);
+        try {
+            nodes.add("E");
+            fail("Views should be read-only.");
+        } catch (UnsupportedOperationException expected) {
+            // Read-only
+        }
+    }
+
+    @Test
+    public void testCountsStreamsAndEdgeCursor() {
+        DotGraphParser large = new DotGraphParser();
+        int n = 20_000;
+        for (int i = 0; i < n; i++) {
+            large.addEdge("n" + i, "n" + ((i + 1) % n));
+            large.addEdge("n" + i, "n" + ((i * 7 + 3) % n));
+        }
+        large.removeNodes(new String[]{"n0", "n1", "n2"});
+        large.removeNode("n3");
+        large.removeEdge("n4", "n5");
+
+        Set<String> copy = new HashSet<>(large.getEdges());
+        assertEquals("O(1) edge count should match a full count.", copy.size(), large.edgeCount());
+        assertEquals("O(1) node count should match.", n - 4, large.nodeCount());
+        assertEquals("Parallel streams should see every edge once.", copy,
+                large.getEdges().parallelStream().collect(java.util.stream.Collectors.toSet()));
+        assertEquals("Parallel node streams should count every node.", n - 4, large.getNodes().parallelStream().count());
+
+        EdgeCursor cursor = large.edgeCursor(1000);
+        large.addEdge("late", "edge");
+        Set<String> paged = new HashSet<>();
+        int pages = 0;
+        while (cursor.hasNext()) {
+            List<String> page = cursor.next();
+            assertTrue("Pages should hold at most the page size.", page.size() <= 1000);
+            paged.addAll(page);
+            pages++;
+        }
+        assertEquals("Paging should cover the edges as of opening.", copy, paged);
+        assertEquals("Pages should be full until the last.", (copy.size() + 999) / 1000, pages);
+        assertEquals("Cursor should report its position.", copy.size(), cursor.getPosition());
+    }
+
+    @Test
+    public void testIsReachableMatchesBFS() {
+        DotGraphParser random = new DotGraphParser();
+        java.util.Random rng = new java.util.Random(3);
+        int nodeCount = 600;
+        for (int i = 0; i < nodeCount * 1.2; i++) {
+            random.addEdge("n" + rng.nextInt(nodeCount), "n" + rng.nextInt(nodeCount));
+        }
+        random.setSearchCacheSize(0);
+
+        java.util.List<String> nodes = new java.util.ArrayList<>(random.getNodes());
+        for (int i = 0; i < 2_000; i++) {
+            String src = nodes.get(rng.nextInt(nodes.size()));
+            String dst = nodes.get(rng.nextInt(nodes.size()));
+            assertEquals("Reachability of " + dst + " from " + src + " should match BFS.",
+                    random.GraphSearch(src, dst, Algorithm.BFS) != null, random.isReachable(src, dst));
+        }
+
+        ReachabilityIndex index = random.getReachabilityIndex();
+        assertTrue("Index should report its memory footprint.", index.getMemoryBytes() > 0);
+        assertTrue("Index should report its components.", index.getComponentCount() > 0);
+    }
+
+    @Test
+    public void testIsReachableRebuildsAfterMutation() {
+        parser.addNode("D");
+        assertFalse("D should not be reachable yet.", parser.isReachable("A", "D"));
+        assertTrue("Nodes in a cycle reach each other.", parser.isReachable("C", "B"));
+
+        parser.addEdge("C", "D");
+        assertTrue("D should be reachable after adding C -> D.", parser.isReachable("A", "D"));
+        assertFalse("D has no way back.", parser.isReachable("D", "A"));
+        assertFalse("Unknown nodes are unreachable.", parser.isReachable("A", "missing"));
+    }
+
+    @Test
+    public void testComponentsCondensationAndPruning() {
+        DotGraphParser deps = new DotGraphParser();
+        deps.parseGraph(new java.io.ByteArrayInputStream(("digraph {"
+                + " a -> b; b -> c; c -> a; c -> d; d -> e; e -> d; e -> f; f -> f; g; }").getBytes()), null);
+
+        StronglyConnectedComponents scc = deps.getComponents();
+        assertEquals("Cycles collapse into four components plus g.", 4, scc.getComponentCount());
+        assertTrue("a and c share a cycle.", scc.isSameComponent("a", "c"));
+        assertFalse("c and d do not.", scc.isSameComponent("c", "d"));
+        assertEquals("Members should be listed.", new HashSet<>(java.util.Arrays.asList("a", "b", "c")),
+                new HashSet<>(scc.getMembers(scc.getComponentOf("b"))));
+        assertEquals("Self-loops and multi-node components are cycles.", 3, scc.getCycles().size());
+
+        int[] order = scc.getTopologicalOrder();
+        int[] position = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            position[order[i]] = i;
+        }
+        for (int c = 0; c < order.length; c++) {
+            for (int successor : scc.getSuccessors(c)) {
+                assertTrue("Condensation edges should point forward.", position[c] < position[successor]);
+            }
+        }
+        assertArrayEquals("abc should lead only to de.", new int[]{scc.getComponentOf("d")},
+                scc.getSuccessors(scc.getComponentOf("a")));
+
+        deps.setComponentPruning(true);
+        assertNull("Upstream destinations should be pruned.", deps.GraphSearch("f", "a", Algorithm.BFS));
+        assertEquals("Downstream searches should still run.", "a -> b -> c -> d -> e -> f",
+                deps.GraphSearch("a", "f", Algorithm.BFS).toString());
+        deps.addEdge("f", "a");
+        assertEquals("Pruning should follow mutations.", "f -> a", deps.GraphSearch("f", "a", Algorithm.DFS).toString());
+        assertTrue("A new cycle merges the components.", deps.getComponents().isSameComponent("a", "f"));
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws Exception {
+        DotGraphParser shared = new DotGraphParser(true);
+        shared.addEdge("root", "w0_0");
+        int writers = 2;
+        int edgesPerWriter = 2_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            int id = w;
+            threads.add(new Thread(() -> {
+                try {
+                    // Each writer grows its own chain from root and removes a scratch node every few edges
+                    shared.addEdge("root", "w" + id + "_0");
+                    for (int i = 0; i < edgesPerWriter; i++) {
+                        shared.addEdge("w" + id + "_" + i, "w" + id + "_" + (i + 1));
+                        if (i % 50 == 0) {
+                            shared.addEdge("w" + id + "_" + i, "scratch" + id);
+                            shared.removeNode("scratch" + id);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (writing.get()) {
+                        Path path = shared.GraphSearch("root", "w0_0", Algorithm.BFS);
+                        assertNotNull("root -> w0_0 exists from the start.", path);
+                        Set<String> edges = shared.getEdges();
+                        assertTrue("Edges are never lost while writers add.", edges.contains("root -> w0_0"));
+                        shared.isReachable("w1_0", "root");
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (int w = 0; w < writers; w++) {
+            threads.get(w).join();
+        }
+        writing.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError("Concurrent access failed.", failure.get());
+        }
+        assertEquals("Every writer's edges should be present.", 2 + writers * edgesPerWriter, shared.getEdges().size());
+        for (int w = 0; w < writers; w++) {
+            Path path = shared.GraphSearch("root", "w" + w + "_" + edgesPerWriter, Algorithm.BFS);
+            assertNotNull("Each chain should be fully connected.", path);
+            assertEquals("Chain path length.", edgesPerWriter + 2, path.getNodes().size());
+        }
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        java.nio.file.Path file = tempFolder.newFile("sample.graph").toPath();
+        parser.saveSnapshot(file);
+
+        DotGraphParser loaded = new DotGraphParser();
+        loaded.loadSnapshot(file);
+        assertEquals("Loaded snapshot should have the same nodes.", parser.getNodes(), loaded.getNodes());
+        assertEquals("Loaded snapshot should have the same edges.", parser.getEdges(), loaded.getEdges());
+        assertEquals("Searches should run on the loaded snapshot.",
+                parser.GraphSearch("A", "C", Algorithm.BFS).toString(),
+                loaded.GraphSearch("A", "C", Algorithm.BFS).toString());
+
+        // Mutating builds the Graphviz model from the snapshot without losing anything
+        loaded.addEdge("C", "D");
+        Set<String> expected = new HashSet<>(parser.getEdges());
+        expected.add("C -> D");
+        assertEquals("Edges after mutating a loaded graph.", expected, loaded.getEdges());
+    }
+
+    @Test
+    public void testSnapshotRoundTripKeepsWeightsAndLargeGraphs() throws Exception {
+        StringBuilder dot = new StringBuilder("digraph big {\n  s -> t [weight=10];\n  s -> m [weight=2];\n  m -> t [weight=3];\n");
+        for (int i = 0; i < 20_000; i++) {
+            dot.append("  n").append(i).append(" -> n").append((i * 7919) % 20_000).append(";\n");
+        }
+        dot.append("}\n");
+        DotGraphParser source = new DotGraphParser();
+        source.parseGraph(new java.io.ByteArrayInputStream(dot.toString().getBytes("UTF-8")), null);
+
+        java.nio.file.Path file = tempFolder.newFile("big.graph").toPath();
+        source.saveSnapshot(file);
+        DotGraphParser loaded = new DotGraphParser();
+        loaded.loadSnapshot(file);
+
+        assertEquals("Node sets should match.", source.getNodes(), loaded.getNodes());
+        assertEquals("Edge sets should match.", source.getEdges(), loaded.getEdges());
+        assertEquals("Weights should survive the round trip.", 5.0,
+                loaded.GraphSearch("s", "t", Algorithm.DIJKSTRA).getCost(), 1e-9);
+
+        // A saved loaded graph (never materialized) is byte-for-byte the same file
+        java.nio.file.Path again = tempFolder.newFile("again.graph").toPath();
+        loaded.saveSnapshot(again);
+        assertArrayEquals("Re-saving should reproduce the file.", java.nio.file.Files.readAllBytes(file),
+                java.nio.file.Files.readAllBytes(again));
+
+        // So is DOT export, which streams from the snapshot's arrays
+        java.nio.file.Path text = tempFolder.getRoot().toPath().resolve("big.dot");
+        loaded.outputGraph(text, false);
+        DotGraphParser reparsed = new DotGraphParser();
+        reparsed.parseGraph(text);
+        assertEquals("Exported loaded graph should parse back to the same edges.", source.getEdges(), reparsed.getEdges());
+        assertEquals("Exported weights should parse back.", 5.0,
+                reparsed.GraphSearch("s", "t", Algorithm.DIJKSTRA).getCost(), 1e-9);
+    }
+
+    @Test
+    public void testOffHeapNamesMatchOnHeapNames() throws Exception {
+        DotGraphParser source = new DotGraphParser();
+        source.parseGraph(new java.io.ByteArrayInputStream(("digraph {"
+                + " \"caf\u00e9\" -> \"x -> y\"; \"x -> y\" -> z; \"x -> y\" -> z; z -> \"caf\u00e9\"; }").getBytes("UTF-8")), null);
+        assertEquals("Parallel edges should be listed once.", 3, source.getEdges().size());
+        assertTrue("Labels containing an arrow should still be found.", source.getEdges().contains("x -> y -> z"));
+
+        java.nio.file.Path file = tempFolder.newFile("names.graph").toPath();
+        source.saveSnapshot(file);
+        DotGraphParser offHeap = new DotGraphParser();
+        offHeap.setOffHeapNames(true);
+        offHeap.loadSnapshot(file);
+
+        assertEquals("Node sets should match.", source.getNodes(), offHeap.getNodes());
+        assertEquals("Edge sets should match.", source.getEdges(), offHeap.getEdges());
+        assertTrue("Non-ASCII labels should be found.", offHeap.getNodes().contains("caf\u00e9"));
+        assertEquals("Search should work on off-heap labels.", "caf\u00e9 -> x -> y -> z",
+                offHeap.GraphSearch("caf\u00e9", "z", Algorithm.BFS).toString());
+        assertTrue("Dictionary size should be reported.", offHeap.getNameDictionaryBytes() > 0);
+
+        // Mutating materializes the graph; the rebuilt snapshot is off-heap as well
+        offHeap.addEdge("z", "w");
+        assertTrue("New edges should be visible.", offHeap.getEdges().contains("z -> w"));
+        assertEquals("New nodes should be counted.", 4, offHeap.getNodes().size());
+    }
+
+    @Test
+    public void testLoadSnapshotRejectsOtherFiles() throws Exception {
+        java.nio.file.Path file = tempFolder.newFile("not-a-snapshot.dot").toPath();
+        java.nio.file.Files.write(file, "digraph { a -> b }".getBytes("UTF-8"));
+
+        parser.loadSnapshot(file);
+        assertEquals("A failed load should leave the graph untouched.", 3, parser.getEdges().size());
+
+        // Valid header, then node counts the file cannot hold: Integer.MAX_VALUE, and -1 as a five-byte varint
+        byte[][] counts = {{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}, {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}};
+        for (byte[] nodeCount : counts) {
+            java.io.ByteArrayOutputStream corrupt = new java.io.ByteArrayOutputStream();
+            corrupt.write(new byte[]{'D', 'O', 'T', 'G', GraphSnapshotFile.FORMAT_VERSION, 1, 0});
+            corrupt.write(nodeCount);
+            corrupt.write(0);
+            java.nio.file.Files.write(file, corrupt.toByteArray());
+            try {
+                parser.readSnapshot(file);
+                fail("Impossible counts should be rejected.");
+            } catch (java.io.IOException expected) {
+                assertTrue("Should be reported as corrupt.", expected.getMessage().startsWith("Corrupt snapshot"));
+            }
+            assertEquals("A corrupt snapshot should leave the graph untouched.", 3, parser.getEdges().size());
+        }
+    }
+
+    @Test
+    public void testMetricsAreReportedOverJmx() throws Exception {
+        GraphMetrics metrics = parser.enableMetrics("test");
+        try {
+            java.io.ByteArrayOutputStream captured = new java.io.ByteArrayOutputStream();
+            java.io.PrintStream stdout = System.out;
+            System.setOut(new java.io.PrintStream(captured));
+            try {
+                parser.addEdge("C", "D");
+                parser.getNodes();
+                parser.GraphSearch("A", "D", Algorithm.BFS);
+                parser.GraphSearch("A", "D", Algorithm.BFS);
+                parser.removeNode("D");
+            } finally {
+                System.setOut(stdout);
+            }
+            assertEquals("Graph operations should not print.", 0, captured.size());
+
+            assertEquals("Mutations should be counted.", 2, metrics.getMutationCount());
+            assertEquals("Removals are counted by type.", 1,
+                    metrics.getMutationCount(GraphMetricsListener.Mutation.REMOVE_NODE));
+            assertEquals("Both searches should be counted.", 2, metrics.getSearchCount());
+            assertEquals("The repeated search should come from the cache.", 1, metrics.getCachedSearchCount());
+            assertEquals("BFS from A visits every node to reach D.", 4.0, metrics.getMeanVisitedNodes(), 1e-9);
+
+            javax.management.MBeanServer server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+            javax.management.ObjectName name = new javax.management.ObjectName("DotGraphParser:type=GraphMetrics,name=\"test\"");
+            assertEquals("JMX should expose the search count.", 2L, server.getAttribute(name, "SearchCount"));
+            assertEquals("JMX should expose the live node count.", 3, server.getAttribute(name, "NodeCount"));
+        } finally {
+            parser.disableMetrics();
+        }
+        assertTrue("Disabling should unregister the MBean.", java.lang.management.ManagementFactory.getPlatformMBeanServer()
+                .queryNames(new javax.management.ObjectName("DotGraphParser:*"), null).isEmpty());
+    }
+
+    @Test
+    public void testJournalRecoversMutationsAfterCrash() throws Exception {
+        java.nio.file.Path dir = tempFolder.newFolder("journal").toPath();
+        parser.openJournal(dir);
+        parser.addEdge("C", "D");
+        parser.addNode("E");
+        parser.removeEdge("B", "C");
+        parser.removeNode("A");
+        parser.syncJournal();
+        Set<String> expectedEdges = new HashSet<>(parser.getEdges());
+        Set<String> expectedNodes = new HashSet<>(parser.getNodes());
+
+        // A torn final record, as a crash mid-write would leave, is ignored
+        java.nio.file.Path log = dir.resolve("journal-1.log");
+        java.nio.file.Files.write(log, new byte[]{MutationJournal.ADD_EDGE, 5, 'x'}, java.nio.file.StandardOpenOption.APPEND);
+
+        // Recover without closing the first parser, as after a crash
+        DotGraphParser recovered = new DotGraphParser();
+        recovered.openJournal(dir);
+        try {
+            assertEquals("Recovered nodes.", expectedNodes, recovered.getNodes());
+            assertEquals("Recovered edges.", expectedEdges, recovered.getEdges());
+
+            recovered.addEdge("E", "B");
+            expectedEdges.add("E -> B");
+        } finally {
+            recovered.closeJournal();
+            parser.closeJournal();
+        }
+
+        DotGraphParser reopened = new DotGraphParser();
+        reopened.openJournal(dir);
+        reopened.closeJournal();
+        assertEquals("Edits after recovery are journaled too.", expectedEdges, reopened.getEdges());
+    }
+
+    @Test
+    public void testJournalReplayPropagatesApplyFailures() throws Exception {
+        java.nio.file.Path dir = tempFolder.newFolder("journal").toPath();
+        parser.openJournal(dir);
+        parser.addEdge("C", "D");
+        parser.addNode("E");
+        parser.closeJournal();
+        java.nio.file.Path log = dir.resolve("journal-1.log");
+        long length = java.nio.file.Files.size(log);
+
+        try {
+            MutationJournal.replay(log, 1, (type, first, second) -> {
+                throw new IllegalStateException("apply failed");
+            });
+            fail("A failure applying an intact record should propagate.");
+        } catch (IllegalStateException expected) {
+            // Not mistaken for a torn record
+        }
+        assertEquals("Intact records should be counted past.", length,
+                MutationJournal.replay(log, 1, (type, first, second) -> { }));
+        assertEquals("The journal should be left whole.", length, java.nio.file.Files.size(log));
+    }
+
+    @Test
+    public void testJournalCompactsIntoSnapshot() throws Exception {
+        java.nio.file.Path dir = tempFolder.newFolder("compacting").toPath();
+        DotGraphParser journaled = new DotGraphParser();
+        journaled.openJournal(dir, 5, 512);
+        for (int i = 0; i < 500; i++) {
+            journaled.addEdge("n" + i, "n" + (i + 1));
+        }
+        journaled.removeNode("n250");
+        journaled.closeJournal();
+
+        List<String> files = new ArrayList<>();
+        try (java.nio.file.DirectoryStream<java.nio.file.Path> stream = java.nio.file.Files.newDirectoryStream(dir)) {
+            stream.forEach(file -> files.add(file.getFileName().toString()));
+        }
+        assertEquals("Only the latest snapshot and journal should remain: " + files, 2, files.size());
+        assertFalse("Compaction should have advanced past the first generation.", files.contains("graph-1.snapshot"));
+
+        DotGraphParser recovered = new DotGraphParser();
+        recovered.openJournal(dir);
+        recovered.closeJournal();
+        assertEquals("Recovered edges.", journaled.getEdges(), recovered.getEdges());
+        assertEquals("Recovered nodes.", journaled.getNodes(), recovered.getNodes());
+    }
+
+    @Test
+    public void testBatchCliRunsCommandsInOrder() throws Exception {
+        java.nio.file.Path graph = tempFolder.getRoot().toPath().resolve("cli.dot");
+        java.nio.file.Files.write(graph, "digraph { a -> b; b -> c; }".getBytes("UTF-8"));
+        String commands = "# queries see every earlier mutation\n"
+                + "search a c\nreachable c a\nedges\n"
+                + "addedge c a\nreachable c a\nsearch c b DFS\n"
+                + "removenode b\n\nsearch a c\nnodes\nkshortest c a 2\nbogus x\n";
+
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        java.io.ByteArrayOutputStream err = new java.io.ByteArrayOutputStream();
+        int status = main.run(new String[]{graph.toString(), "-", "--threads", "3", "--batch", "2"},
+                new java.io.ByteArrayInputStream(commands.getBytes("UTF-8")),
+                new java.io.PrintStream(out, true, "UTF-8"), new java.io.PrintStream(err, true, "UTF-8"));
+
+        assertEquals("CLI should succeed.", 0, status);
+        assertEquals("One result per command, in input order.", java.util.Arrays.asList(
+                "a -> b -> c", "false", "2", "ok", "true", "c -> a -> b", "ok", "no path", "2", "c -> a",
+                "error: unknown command bogus"), java.util.Arrays.asList(out.toString("UTF-8").split("\\R")));
+        String report = err.toString("UTF-8");
+        assertTrue("Latency percentiles should be reported per command.", report.contains("search") && report.contains("p99="));
+        assertEquals("Missing arguments should print usage.", 2,
+                main.run(new String[0], System.in, System.out, new java.io.PrintStream(new java.io.ByteArrayOutputStream())));
+
+        java.nio.file.Path broken = tempFolder.getRoot().toPath().resolve("broken.dot");
+        java.nio.file.Files.write(broken, "digraph { a -> \"b; }".getBytes("UTF-8"));
+        out.reset();
+        err.reset();
+        assertEquals("A graph that fails to load should fail the run.", 1,
+                main.run(new String[]{broken.toString(), "-"}, new java.io.ByteArrayInputStream("nodes\n".getBytes("UTF-8")),
+                        new java.io.PrintStream(out, true, "UTF-8"), new java.io.PrintStream(err, true, "UTF-8")));
+        assertEquals("No command should run against the unloaded graph.", "", out.toString("UTF-8"));
+        assertTrue("The load error should be reported.", err.toString("UTF-8").contains("Failed to load graph"));
+
+        java.nio.file.Path exports = tempFolder.newFolder("exports").toPath();
+        out.reset();
+        assertEquals("Failed exports are reported per command, not by the exit status.", 0,
+                main.run(new String[]{graph.toString(), "-"}, new java.io.ByteArrayInputStream(("export "
+                                + exports.resolve("missing").resolve("out.dot") + "\nexport " + exports.resolve("out.dot")
+                                + "\nexport " + exports.resolve("out.pdf") + " pdf\n").getBytes("UTF-8")),
+                        new java.io.PrintStream(out, true, "UTF-8"), new java.io.PrintStream(err, true, "UTF-8")));
+        String[] results = out.toString("UTF-8").split("\\R");
+        assertTrue("A failed write should be an error.", results[0].startsWith("error: export failed"));
+        assertEquals("A good export should succeed.", "ok", results[1]);
+        assertEquals("An unsupported format should be an error.", "error: unsupported format pdf", results[2]);
+    }
+
+    @Test
+    public void testAddEdgesBuildsLongChain() {
+        // Timing of the same insertion is checked in ScalabilityTest (mvn -P scalability test)
+        DotGraphParser chain = new DotGraphParser();
+        for (int i = 0; i < 100_000; i++) {
+            chain.addEdge("n" + i, "n" + (i + 1));
+        }
+        assertEquals("Chain should contain every inserted edge.", 100_000, chain.getEdges().size());
+        assertEquals("Chain should contain every endpoint.", 100_001, chain.getNodes().size());
+    }
 }
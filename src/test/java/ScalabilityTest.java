@@ -0,0 +1,203 @@
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+// Scalability checks on synthetic graphs: each operation is timed at n and 4n nodes and the time ratio is compared
+// against its complexity. Linear work should grow about 4x (quadratic would be 16x), per-operation work should
+// stay about flat. Garbage collection is left out of the timings: its cost depends on the heap settings and on how
+// much of a large graph is live, not on the operation's complexity. Runs only with the scalability profile:
+//   mvn -P scalability test [-Dscalability.nodes=100000]
+public class ScalabilityTest {
+    // Smallest graph timed; the largest is four times this
+    private static final int BASE_NODES = Integer.getInteger("scalability.nodes", 50_000);
+    private static final double LINEAR = 8.0;
+    private static final double CONSTANT = 2.5;
+    private static final long SEED = 464;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testGeneratorIsDeterministic() {
+        for (SyntheticGraph.Shape shape : SyntheticGraph.Shape.values()) {
+            SyntheticGraph a = SyntheticGraph.generate(shape, 500, SEED);
+            SyntheticGraph b = SyntheticGraph.generate(shape, 500, SEED);
+            assertArrayEquals(shape + " sources should repeat.", a.sources, b.sources);
+            assertArrayEquals(shape + " targets should repeat.", a.targets, b.targets);
+            if (shape != SyntheticGraph.Shape.ERDOS_RENYI) {
+                assertEquals(shape + " should reach every node from the root.", 500, reachableFrom(a));
+            }
+        }
+        assertEquals("A clique has every ordered pair.", 10 * 9, SyntheticGraph.generate(SyntheticGraph.Shape.CLIQUE, 10, SEED).edgeCount());
+    }
+
+    @Test
+    public void testParsingScalesLinearly() {
+        assertScales("Streaming parse", LINEAR, n -> {
+            SyntheticGraph graph = SyntheticGraph.generate(SyntheticGraph.Shape.ERDOS_RENYI, n, SEED);
+            java.nio.file.Path file = writeDot(graph);
+            DotGraphParser parser = new DotGraphParser();
+            long start = mutatorNanos();
+            parser.parseGraph(file);
+            long elapsed = mutatorNanos() - start;
+            assertEquals("Every node should be parsed.", n, parser.nodeCount());
+            return elapsed;
+        });
+    }
+
+    @Test
+    public void testAddNodeAndAddEdgeScaleLinearly() {
+        assertScales("addNode/addEdge", LINEAR, n -> {
+            SyntheticGraph graph = SyntheticGraph.generate(SyntheticGraph.Shape.POWER_LAW, n, SEED);
+            long start = mutatorNanos();
+            DotGraphParser parser = graph.toParser();
+            long elapsed = mutatorNanos() - start;
+            assertEquals("Every node should be added.", n, parser.nodeCount());
+            return elapsed;
+        });
+    }
+
+    @Test
+    public void testAddEdgeChainScalesLinearly() {
+        // addEdge alone, creating both endpoints as it goes; linear-scan lookups used to make this quadratic
+        assertScales("addEdge chain", LINEAR, n -> {
+            DotGraphParser chain = new DotGraphParser();
+            long start = mutatorNanos();
+            for (int i = 0; i < n - 1; i++) {
+                chain.addEdge(SyntheticGraph.name(i), SyntheticGraph.name(i + 1));
+            }
+            long elapsed = mutatorNanos() - start;
+            assertEquals("Chain should contain every inserted edge.", n - 1, chain.edgeCount());
+            return elapsed;
+        });
+    }
+
+    @Test
+    public void testRemoveNodeCostDoesNotGrowWithGraph() {
+        int removals = 2_000;
+        assertScales("removeNode", CONSTANT, n -> {
+            DotGraphParser parser = SyntheticGraph.generate(SyntheticGraph.Shape.WIDE_TREE, n, SEED).toParser();
+            long start = mutatorNanos();
+            // Leaves only, so each removal touches one edge whatever the graph size
+            for (int i = 0; i < removals; i++) {
+                parser.removeNode(SyntheticGraph.name(n - 1 - i));
+            }
+            long elapsed = mutatorNanos() - start;
+            assertEquals("Removed nodes should be gone.", n - removals, parser.nodeCount());
+            return elapsed;
+        });
+    }
+
+    @Test
+    public void testGraphSearchScalesLinearly() {
+        for (SyntheticGraph.Shape shape : new SyntheticGraph.Shape[]{SyntheticGraph.Shape.CHAIN, SyntheticGraph.Shape.ERDOS_RENYI}) {
+            // One graph per size, shared by the runs and algorithms
+            Map<Integer, SyntheticGraph> graphs = new HashMap<>();
+            Map<Integer, DotGraphParser> parsers = new HashMap<>();
+            for (Algorithm algo : new Algorithm[]{Algorithm.BFS, Algorithm.DFS, Algorithm.DIJKSTRA}) {
+                assertScales(algo + " on " + shape, LINEAR, n -> {
+                    SyntheticGraph graph = graphs.computeIfAbsent(n, size -> SyntheticGraph.generate(shape, size, SEED));
+                    DotGraphParser parser = parsers.computeIfAbsent(n, size -> {
+                        DotGraphParser built = graph.toParser();
+                        built.setSearchCacheSize(0);
+                        return built;
+                    });
+                    // Build the snapshot first so only the search itself is timed
+                    parser.GraphSearch(graph.root(), graph.root(), algo);
+                    long start = mutatorNanos();
+                    parser.GraphSearch(graph.root(), graph.leaf(), algo);
+                    return mutatorNanos() - start;
+                });
+            }
+        }
+    }
+
+    @Test
+    public void testCliqueEdgeLookupsStayConstant() {
+        // Dense graphs: n is the node count of a clique with n * (n - 1) edges
+        int lookups = 100_000;
+        Map<Integer, DotGraphParser> parsers = new HashMap<>();
+        assertScales("Edge lookups in a clique", CONSTANT, 300, n -> {
+            DotGraphParser parser = parsers.computeIfAbsent(n,
+                    size -> SyntheticGraph.generate(SyntheticGraph.Shape.CLIQUE, size, SEED).toParser());
+            long start = mutatorNanos();
+            for (int i = 0; i < lookups; i++) {
+                assertTrue(parser.containsEdge(SyntheticGraph.name(i % n), SyntheticGraph.name((i + 1) % n)));
+            }
+            return mutatorNanos() - start;
+        });
+    }
+
+    @Test
+    public void testExportScalesLinearly() {
+        assertScales("outputGraph", LINEAR, n -> {
+            DotGraphParser parser = SyntheticGraph.generate(SyntheticGraph.Shape.ERDOS_RENYI, n, SEED).toParser();
+            java.nio.file.Path file = tempFolder.getRoot().toPath().resolve("export-" + n + ".dot");
+            long start = mutatorNanos();
+            parser.outputGraph(file, false);
+            return mutatorNanos() - start;
+        });
+    }
+
+    private void assertScales(String operation, double maxRatio, IntToLongFunction timeAtSize) {
+        assertScales(operation, maxRatio, BASE_NODES, timeAtSize);
+    }
+
+    // Helper method to time an operation at n and 4n (best of three after a warm-up run) and bound the ratio
+    private static void assertScales(String operation, double maxRatio, int n, IntToLongFunction timeAtSize) {
+        timeAtSize.applyAsLong(n);
+        long small = best(n, timeAtSize);
+        long large = best(4 * n, timeAtSize);
+        double ratio = (double) large / Math.max(small, 1);
+        assertTrue(operation + " took " + ratio + "x as long at 4x the size (" + small / 1000 + "us vs "
+                + large / 1000 + "us); expected at most " + maxRatio + "x.", ratio <= maxRatio);
+    }
+
+    private static long best(int n, IntToLongFunction timeAtSize) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            // Collect the previous run's graph now, not inside the next timed section
+            System.gc();
+            best = Math.min(best, timeAtSize.applyAsLong(n));
+        }
+        return best;
+    }
+
+    // Wall-clock nanoseconds minus the time every collector has spent so far
+    private static long mutatorNanos() {
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return System.nanoTime() - gcMillis * 1_000_000;
+    }
+
+    private java.nio.file.Path writeDot(SyntheticGraph graph) {
+        try {
+            java.nio.file.Path file = tempFolder.getRoot().toPath().resolve(graph.shape + "-" + graph.nodeCount + ".dot");
+            if (!java.nio.file.Files.exists(file)) {
+                graph.writeDot(file);
+            }
+            return file;
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static int reachableFrom(SyntheticGraph graph) {
+        DotGraphParser parser = graph.toParser();
+        int reached = 0;
+        for (int node = 0; node < graph.nodeCount; node++) {
+            if (parser.isReachable(graph.root(), SyntheticGraph.name(node))) {
+                reached++;
+            }
+        }
+        return reached;
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+
+// Seeded synthetic graphs for tests, sized by node count (10 to 10M nodes). Node i is named "n" + i. The same
+// shape, size and seed always give the same edges, in the same order.
+final class SyntheticGraph {
+    enum Shape {
+        // n0 -> n1 -> ... -> n(n-1)
+        CHAIN,
+        // Every node has WIDE_FAN_OUT children, filled breadth-first from n0
+        WIDE_TREE,
+        // AVERAGE_DEGREE * n edges with independently uniform endpoints (the G(n, m) form of Erdos-Renyi)
+        ERDOS_RENYI,
+        // Preferential attachment: each new node gets edges from AVERAGE_DEGREE earlier nodes chosen by degree
+        POWER_LAW,
+        // Every ordered pair of distinct nodes; n * (n - 1) edges, so at most MAX_CLIQUE nodes
+        CLIQUE
+    }
+
+    static final int WIDE_FAN_OUT = 64;
+    static final int AVERAGE_DEGREE = 4;
+    static final int MAX_CLIQUE = 5_000;
+
+    final Shape shape;
+    final int nodeCount;
+    final int[] sources;
+    final int[] targets;
+
+    private SyntheticGraph(Shape shape, int nodeCount, int[] sources, int[] targets) {
+        this.shape = shape;
+        this.nodeCount = nodeCount;
+        this.sources = sources;
+        this.targets = targets;
+    }
+
+    static SyntheticGraph generate(Shape shape, int nodeCount, long seed) {
+        if (nodeCount < 2) {
+            throw new IllegalArgumentException("A synthetic graph needs at least two nodes.");
+        }
+        SplittableRandom rng = new SplittableRandom(seed);
+        int[] sources;
+        int[] targets;
+        switch (shape) {
+            case CHAIN:
+            case WIDE_TREE: {
+                int fanOut = shape == Shape.CHAIN ? 1 : WIDE_FAN_OUT;
+                sources = new int[nodeCount - 1];
+                targets = new int[nodeCount - 1];
+                for (int e = 0; e < nodeCount - 1; e++) {
+                    sources[e] = e / fanOut;
+                    targets[e] = e + 1;
+                }
+                break;
+            }
+            case ERDOS_RENYI: {
+                int edgeCount = Math.multiplyExact(nodeCount, AVERAGE_DEGREE);
+                sources = new int[edgeCount];
+                targets = new int[edgeCount];
+                for (int e = 0; e < edgeCount; e++) {
+                    sources[e] = rng.nextInt(nodeCount);
+                    targets[e] = rng.nextInt(nodeCount);
+                }
+                break;
+            }
+            case POWER_LAW: {
+                // Picking a uniformly random endpoint of an existing edge picks a node in proportion to its degree.
+                // Each new node gets its edges from older nodes, so n0 reaches every node and searches from the root
+                // cover the whole graph. The JMH SyntheticGraphs uses the same direction, so benchmark and
+                // scalability numbers for power-law graphs describe the same kind of graph.
+                int edgeCount = Math.multiplyExact(nodeCount - 1, AVERAGE_DEGREE);
+                sources = new int[edgeCount];
+                targets = new int[edgeCount];
+                int[] endpoints = new int[2 * edgeCount];
+                int endpointCount = 0;
+                for (int node = 1, e = 0; node < nodeCount; node++) {
+                    // Only endpoints from before this node, so it never links to itself
+                    int older = endpointCount;
+                    for (int k = 0; k < AVERAGE_DEGREE; k++, e++) {
+                        int source = older == 0 ? 0 : endpoints[rng.nextInt(older)];
+                        sources[e] = source;
+                        targets[e] = node;
+                        endpoints[endpointCount++] = source;
+                        endpoints[endpointCount++] = node;
+                    }
+                }
+                break;
+            }
+            case CLIQUE: {
+                if (nodeCount > MAX_CLIQUE) {
+                    throw new IllegalArgumentException("Cliques are limited to " + MAX_CLIQUE + " nodes.");
+                }
+                int edgeCount = nodeCount * (nodeCount - 1);
+                sources = new int[edgeCount];
+                targets = new int[edgeCount];
+                int e = 0;
+                for (int from = 0; from < nodeCount; from++) {
+                    for (int to = 0; to < nodeCount; to++) {
+                        if (from != to) {
+                            sources[e] = from;
+                            targets[e++] = to;
+                        }
+                    }
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown graph shape: " + shape);
+        }
+        return new SyntheticGraph(shape, nodeCount, sources, targets);
+    }
+
+    static String name(int node) {
+        return "n" + node;
+    }
+
+    int edgeCount() {
+        return sources.length;
+    }
+
+    // Every node is reachable from the root, except in Erdos-Renyi graphs, where some may not be
+    String root() {
+        return name(0);
+    }
+
+    // The last node generated, which is the far end of a chain
+    String leaf() {
+        return name(nodeCount - 1);
+    }
+
+    void writeDot(java.nio.file.Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("digraph G {\n");
+            // Nodes without edges would otherwise be missing from the file
+            boolean[] linked = new boolean[nodeCount];
+            for (int e = 0; e < sources.length; e++) {
+                linked[sources[e]] = true;
+                linked[targets[e]] = true;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                if (!linked[node]) {
+                    out.write("  n" + node + ";\n");
+                }
+            }
+            for (int e = 0; e < sources.length; e++) {
+                out.write("  n");
+                out.write(Integer.toString(sources[e]));
+                out.write(" -> n");
+                out.write(Integer.toString(targets[e]));
+                out.write(";\n");
+            }
+            out.write("}\n");
+        }
+    }
+
+    // A parser holding the graph, built through the public mutation API
+    DotGraphParser toParser() {
+        DotGraphParser parser = new DotGraphParser();
+        for (int node = 0; node < nodeCount; node++) {
+            parser.addNode(name(node));
+        }
+        for (int e = 0; e < sources.length; e++) {
+            parser.addEdge(name(sources[e]), name(targets[e]));
+        }
+        return parser;
+    }
+}